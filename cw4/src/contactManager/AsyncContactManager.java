@@ -0,0 +1,342 @@
+package contactManager;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the methods of a ContactManager on an executor, each returning a
+ * CompletableFuture, so that callers never wait for a lock or for disk.
+ *
+ * Any executor can be given, e.g.: one starting a virtual thread per task
+ * where the runtime has them, and is left running by close(). By default
+ * a pool of daemon threads grows as needed, as flush() and durable writes
+ * wait for disk, and close() shuts it down.
+ *
+ * Identical reads asked for while one is running are combined: they all
+ * complete with the result of the read running, rather than each running
+ * their own. A read asked for once a change made through this object has
+ * completed never joins a read started before, so it always sees the
+ * change. Each caller gets its own copy of a list or set returned.
+ *
+ * The ContactManager must be safe for concurrent use, as ContactManagerImpl is.
+ *
+ * @author Vasco
+ *
+ */
+public class AsyncContactManager implements AutoCloseable {
+    /**
+     * The contact manager the methods run on.
+     */
+    private final ContactManager contactManager;
+
+    /**
+     * The executor the methods run on.
+     */
+    private final Executor executor;
+
+    /**
+     * The executor created by this object, shut down by close(), or null if one was given.
+     */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * The reads running, keyed by method name, arguments and the changes completed when asked for.
+     */
+    private final ConcurrentMap<List<Object>, CompletableFuture<?>> runningReads = new ConcurrentHashMap<List<Object>, CompletableFuture<?>>();
+
+    /**
+     * The number of changes completed, so that later reads do not join earlier ones.
+     */
+    private final AtomicLong completedChanges = new AtomicLong();
+
+    /**
+     * Constructor, running methods on a pool of daemon threads, shut down by close().
+     *
+     * @param contactManager the contact manager to run the methods on
+     */
+    public AsyncContactManager(ContactManager contactManager) {
+        this(contactManager, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "AsyncContactManager");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Constructor, the executor being left running by close().
+     *
+     * @param contactManager the contact manager to run the methods on
+     * @param executor the executor to run the methods on
+     */
+    public AsyncContactManager(ContactManager contactManager, Executor executor) {
+        this(contactManager, executor, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param contactManager the contact manager to run the methods on
+     * @param executor the executor to run the methods on
+     * @param owned whether the executor was created here, and is to be shut down by close()
+     */
+    private AsyncContactManager(ContactManager contactManager, Executor executor, boolean owned) {
+        if ( contactManager == null ) throw new NullPointerException("No contact manager supplied.");
+        if ( executor == null ) throw new NullPointerException("No executor supplied.");
+        this.contactManager = contactManager;
+        this.executor       = executor;
+        this.ownedExecutor  = owned ? (ExecutorService) executor : null;
+    }
+
+    // ***************************************************************************** //
+    // *                                  CHANGES                                  * //
+    // ***************************************************************************** //
+
+    /**
+     * See ContactManager.addFutureMeeting.
+     *
+     * @param contacts a list of contacts that will participate in the meeting
+     * @param date the date on which the meeting will take place
+     * @return completed with the ID for the meeting
+     */
+    public CompletableFuture<Integer> addFutureMeeting(Set<Contact> contacts, Calendar date) {
+        return change(() -> contactManager.addFutureMeeting(contacts, date));
+    }
+
+    /**
+     * See ContactManager.addNewPastMeeting.
+     *
+     * @param contacts a list of participants
+     * @param date the date on which the meeting took place
+     * @param text messages to be added about the meeting
+     * @return completed once the meeting is added
+     */
+    public CompletableFuture<Void> addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) {
+        return change(() -> {
+            contactManager.addNewPastMeeting(contacts, date, text);
+            return null;
+        });
+    }
+
+    /**
+     * See ContactManager.addMeetingNotes.
+     *
+     * @param id the ID of the meeting
+     * @param text messages to be added about the meeting
+     * @return completed once the notes are added
+     */
+    public CompletableFuture<Void> addMeetingNotes(int id, String text) {
+        return change(() -> {
+            contactManager.addMeetingNotes(id, text);
+            return null;
+        });
+    }
+
+    /**
+     * See ContactManager.addNewContact.
+     *
+     * @param name the name of the contact
+     * @param notes notes to be added about the contact
+     * @return completed once the contact is added
+     */
+    public CompletableFuture<Void> addNewContact(String name, String notes) {
+        return change(() -> {
+            contactManager.addNewContact(name, notes);
+            return null;
+        });
+    }
+
+    /**
+     * See ContactManager.flush.
+     *
+     * @return completed once all data is saved
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(contactManager::flush, executor);
+    }
+
+    // ***************************************************************************** //
+    // *                                   READS                                   * //
+    // ***************************************************************************** //
+
+    /**
+     * See ContactManager.getPastMeeting.
+     *
+     * @param id the ID for the meeting
+     * @return completed with the meeting with the requested ID, or null if there is none
+     */
+    public CompletableFuture<PastMeeting> getPastMeeting(int id) {
+        return read(() -> contactManager.getPastMeeting(id), Function.identity(), "getPastMeeting", id);
+    }
+
+    /**
+     * See ContactManager.getFutureMeeting.
+     *
+     * @param id the ID for the meeting
+     * @return completed with the meeting with the requested ID, or null if there is none
+     */
+    public CompletableFuture<FutureMeeting> getFutureMeeting(int id) {
+        return read(() -> contactManager.getFutureMeeting(id), Function.identity(), "getFutureMeeting", id);
+    }
+
+    /**
+     * See ContactManager.getMeeting.
+     *
+     * @param id the ID for the meeting
+     * @return completed with the meeting with the requested ID, or null if there is none
+     */
+    public CompletableFuture<Meeting> getMeeting(int id) {
+        return read(() -> contactManager.getMeeting(id), Function.identity(), "getMeeting", id);
+    }
+
+    /**
+     * See ContactManager.getFutureMeetingList(Contact).
+     *
+     * @param contact one of the user's contacts
+     * @return completed with the list of future meetings scheduled with this contact
+     */
+    public CompletableFuture<List<Meeting>> getFutureMeetingList(Contact contact) {
+        // Contacts are told apart by id, as the same contact may come in different objects.
+        Object key = contact == null ? null : contact.getId();
+        return read(() -> contactManager.getFutureMeetingList(contact), LinkedList<Meeting>::new, "getFutureMeetingList(Contact)", key);
+    }
+
+    /**
+     * See ContactManager.getFutureMeetingList(Calendar).
+     *
+     * @param date the date
+     * @return completed with the list of meetings set after the date
+     */
+    public CompletableFuture<List<Meeting>> getFutureMeetingList(Calendar date) {
+        Object key = date == null ? null : date.getTimeInMillis();
+        return read(() -> contactManager.getFutureMeetingList(date), LinkedList<Meeting>::new, "getFutureMeetingList(Calendar)", key);
+    }
+
+    /**
+     * See ContactManager.getPastMeetingList.
+     *
+     * @param contact one of the user's contacts
+     * @return completed with the list of past meetings with this contact
+     */
+    public CompletableFuture<List<PastMeeting>> getPastMeetingList(Contact contact) {
+        Object key = contact == null ? null : contact.getId();
+        return read(() -> contactManager.getPastMeetingList(contact), LinkedList<PastMeeting>::new, "getPastMeetingList", key);
+    }
+
+    /**
+     * See ContactManager.getContacts(int...).
+     *
+     * @param ids an arbitrary number of contact IDs
+     * @return completed with the contacts corresponding to the IDs
+     */
+    public CompletableFuture<Set<Contact>> getContacts(int... ids) {
+        return read(() -> contactManager.getContacts(ids), HashSet<Contact>::new, "getContacts(int...)", Arrays.toString(ids));
+    }
+
+    /**
+     * See ContactManager.getContacts(String).
+     *
+     * @param name the string to search for
+     * @return completed with the contacts whose name contains the string
+     */
+    public CompletableFuture<Set<Contact>> getContacts(String name) {
+        return read(() -> contactManager.getContacts(name), HashSet<Contact>::new, "getContacts(String)", name);
+    }
+
+    // ***************************************************************************** //
+    // *                                  CLOSING                                  * //
+    // ***************************************************************************** //
+
+    /**
+     * Shuts down the pool of threads created by the one argument constructor,
+     * once the methods already asked for have completed. An executor given
+     * is left running, and the contact manager is never closed.
+     *
+     * Methods asked for once closed complete exceptionally with a
+     * RejectedExecutionException if the pool was shut down.
+     */
+    @Override
+    public void close() {
+        if ( ownedExecutor == null ) return;
+        ownedExecutor.shutdown();
+        try {
+            ownedExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Runs a change on the executor, counting it once completed.
+     *
+     * @param change the change to run
+     * @return completed with the result of the change
+     */
+    private <T> CompletableFuture<T> change(Supplier<T> change) {
+        try {
+            return CompletableFuture.supplyAsync(change, executor).whenComplete((result, failure) -> completedChanges.incrementAndGet());
+        } catch (RejectedExecutionException e) {
+            // Never run, so nothing changed.
+            CompletableFuture<T> rejected = new CompletableFuture<T>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * Runs a read on the executor, unless an identical one, asked for
+     * since the last change completed, is running already.
+     *
+     * @param read the read to run
+     * @param copy copies the result for each caller, so that none sees another change it
+     * @param method the name of the read method
+     * @param argument the argument of the read, as compared with other reads
+     * @return completed with a copy of the result of the read
+     */
+    private <T> CompletableFuture<T> read(Supplier<T> read, Function<T, T> copy, String method, Object argument) {
+        List<Object> key = Arrays.asList(method, argument, completedChanges.get());
+
+        // Join the read running, or start one and keep it until it completes.
+        CompletableFuture<T> started = new CompletableFuture<T>();
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T> running = (CompletableFuture<T>) runningReads.putIfAbsent(key, started);
+        if ( running == null ) {
+            running = started;
+            try {
+                executor.execute(() -> {
+                    try {
+                        started.complete(read.get());
+                    } catch (Throwable e) {
+                        started.completeExceptionally(e);
+                    } finally {
+                        runningReads.remove(key, started);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Not to be joined by later reads, as it will never run.
+                runningReads.remove(key, started);
+                started.completeExceptionally(e);
+            }
+        }
+
+        return running.thenApply(result -> result == null ? null : copy.apply(result));
+    }
+}
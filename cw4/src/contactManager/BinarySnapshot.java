@@ -0,0 +1,816 @@
+package contactManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * Compact binary format for the data file.
+ *
+ * The file starts with a magic header, so it can be told apart from a
+ * JSON data file, followed by sections. Each section has a fixed header
+ * (type, record count, byte length) so a reader can skip sections it does
+ * not know. Sections are, in order: the string table, the contacts, the
+ * meetings and the index. Contacts and meetings are split into sections of
+ * at most CHUNK_SIZE records, each of which can be decoded on its own, so
+ * that they can be decoded in parallel once the string table is read.
+ *
+ * Numbers are written as variable length integers, dates as epoch
+ * milliseconds, and all names and notes as indexes into the string table,
+ * so repeated strings are stored once. Meetings refer to their contacts
+ * by id, and only embed contacts that are not otherwise known.
+ *
+ * The index section holds fixed size entries pointing at the file position
+ * of each record, so that MappedContactManager can find records without reading
+ * the whole file. It is made of, each table starting with its entry count:
+ * <ul>
+ * <li>contacts by id: id, position</li>
+ * <li>meetings by id: id, position</li>
+ * <li>meetings by date: epoch milliseconds, id, position</li>
+ * <li>strings by index: position</li>
+ * <li>meetings of each contact, by contact id: contact id, first entry, entry count</li>
+ * <li>the entries of the above, each contact's in date order: meeting position</li>
+ * </ul>
+ * The file ends with the position of the index section and the magic header.
+ *
+ * @author Vasco
+ *
+ */
+public class BinarySnapshot {
+    /**
+     * Receives each record as soon as it has been read.
+     */
+    public interface Listener {
+        /**
+         * Called before the contacts are read, with their number.
+         *
+         * @param count the number of contacts to be read
+         */
+        default void contactCount(int count) {
+        }
+
+        /**
+         * Called before the meetings are read, with their number.
+         *
+         * @param count the number of meetings to be read
+         */
+        default void meetingCount(int count) {
+        }
+
+        /**
+         * Called for each contact read.
+         *
+         * @param contact the contact read
+         */
+        void contact(Contact contact);
+
+        /**
+         * Called for each meeting read, after all contacts.
+         *
+         * @param meeting the meeting read
+         */
+        void meeting(Meeting meeting);
+    }
+
+    /**
+     * The header every binary data file starts with.
+     */
+    private static final byte[] MAGIC = { 'C', 'M', 'B', 'S' };
+
+    /**
+     * The format version written: 2 adds meeting durations.
+     */
+    private static final byte VERSION = 2;
+
+    /**
+     * The section ending the file.
+     */
+    private static final byte SECTION_END = 0;
+
+    /**
+     * The string table section.
+     */
+    private static final byte SECTION_STRINGS = 1;
+
+    /**
+     * The contacts section.
+     */
+    private static final byte SECTION_CONTACTS = 2;
+
+    /**
+     * The meetings section.
+     */
+    private static final byte SECTION_MEETINGS = 3;
+
+    /**
+     * The index section.
+     */
+    private static final byte SECTION_INDEX = 4;
+
+    /**
+     * The maximum number of records in a contacts or meetings section.
+     */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * The size of a section header: type, record count and byte length.
+     */
+    static final int SECTION_HEADER_SIZE = 1 + 4 + 8;
+
+    /**
+     * The size of the file trailer: index section position and magic header.
+     */
+    static final int TRAILER_SIZE = 8 + 4;
+
+    /**
+     * The size of a contacts by id and meetings by id index entry.
+     */
+    static final int ID_ENTRY_SIZE = 4 + 8;
+
+    /**
+     * The size of a meetings by date index entry.
+     */
+    static final int DATE_ENTRY_SIZE = 8 + 4 + 8;
+
+    /**
+     * The size of a strings by index index entry.
+     */
+    static final int STRING_ENTRY_SIZE = 8;
+
+    /**
+     * The size of a meetings of each contact index entry.
+     */
+    static final int POSTINGS_ENTRY_SIZE = 4 + 8 + 4;
+
+    /**
+     * The size of an entry of the meetings of each contact.
+     */
+    static final int POSTING_SIZE = 8;
+
+    /**
+     * The Meeting type.
+     */
+    private static final byte TYPE_MEETING = 0;
+
+    /**
+     * The PastMeeting type.
+     */
+    private static final byte TYPE_PAST_MEETING = 1;
+
+    /**
+     * The FutureMeeting type.
+     */
+    private static final byte TYPE_FUTURE_MEETING = 2;
+
+    /**
+     * Set on the type of a meeting with a duration, written after its date.
+     */
+    private static final byte HAS_DURATION = 0x10;
+
+    /**
+     * Checks if the given file is a binary data file.
+     *
+     * @param file the data file
+     * @return true if the file starts with the binary header
+     * @throws IOException on read failure
+     */
+    public static boolean isBinary(File file) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while( read < header.length ) {
+                int n = in.read(header, read, header.length - read);
+                if ( n == -1 ) return false;
+                read += n;
+            }
+        } finally {
+            in.close();
+        }
+        return Arrays.equals(header, MAGIC);
+    }
+
+    /**
+     * Checks if the given bytes are the magic header.
+     *
+     * @param header the bytes to check
+     * @return true if the bytes are the magic header
+     */
+    static boolean isMagic(byte[] header) {
+        return Arrays.equals(header, MAGIC);
+    }
+
+    /**
+     * Writes all contacts and meetings to the given channel, from its current position.
+     *
+     * @param channel the channel to write to
+     * @param contacts all known contacts
+     * @param meetings all known meetings
+     * @throws IOException on write failure
+     */
+    public static void write(FileChannel channel, Collection<Contact> contacts, Collection<Meeting> meetings)
+            throws IOException {
+        SectionWriter out = new SectionWriter(channel);
+        out.out.write(MAGIC);
+        out.out.writeByte(VERSION);
+
+        // Gather every distinct name and notes string once.
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+        List<String> table = new ArrayList<String>();
+        for( Contact contact : contacts ) {
+            intern(contact.getName(), strings, table);
+            intern(contact.getNotes(), strings, table);
+        }
+        Set<Integer> known = new HashSet<Integer>();
+        for( Contact contact : contacts ) known.add(contact.getId());
+        for( Meeting meeting : meetings ) {
+            if ( meeting instanceof PastMeeting ) intern(((PastMeeting) meeting).getNotes(), strings, table);
+            for( Contact contact : meeting.getContacts() ) {
+                if ( known.contains(contact.getId()) ) continue;
+                intern(contact.getName(), strings, table);
+                intern(contact.getNotes(), strings, table);
+            }
+        }
+
+        // The string table.
+        long[] stringPositions = new long[table.size()];
+        out.startSection(SECTION_STRINGS, table.size());
+        for( int i = 0; i < table.size(); i++ ) {
+            stringPositions[i] = out.position();
+            writeString(out.out, table.get(i));
+        }
+        out.endSection();
+
+        // The contacts.
+        int[] contactIds        = new int[contacts.size()];
+        long[] contactPositions = new long[contacts.size()];
+        int c = 0;
+        for( Contact contact : contacts ) {
+            if ( c % CHUNK_SIZE == 0 ) out.startSection(SECTION_CONTACTS, Math.min(CHUNK_SIZE, contacts.size() - c));
+            contactIds[c]         = contact.getId();
+            contactPositions[c++] = out.position();
+            writeContact(out.out, contact, strings);
+            if ( c % CHUNK_SIZE == 0 || c == contacts.size() ) out.endSection();
+        }
+
+        // The meetings.
+        Meeting[] meetingRecords = new Meeting[meetings.size()];
+        long[] meetingPositions  = new long[meetings.size()];
+        int m = 0;
+        for( Meeting meeting : meetings ) {
+            if ( m % CHUNK_SIZE == 0 ) out.startSection(SECTION_MEETINGS, Math.min(CHUNK_SIZE, meetings.size() - m));
+            meetingRecords[m]     = meeting;
+            meetingPositions[m++] = out.position();
+            writeMeeting(out.out, meeting, strings, known);
+            if ( m % CHUNK_SIZE == 0 || m == meetings.size() ) out.endSection();
+        }
+
+        // The index, pointing at the records written above.
+        long indexPosition = out.position();
+        out.startSection(SECTION_INDEX, 0);
+        writeIndex(out.out, stringPositions, contactIds, contactPositions, meetingRecords, meetingPositions);
+        out.endSection();
+
+        out.out.writeByte(SECTION_END);
+
+        // The trailer, so the index can be found from the end of the file.
+        out.out.writeLong(indexPosition);
+        out.out.write(MAGIC);
+        out.out.flush();
+    }
+
+    /**
+     * Reads all contacts and meetings from the given binary data file,
+     * decoding the contacts and meetings sections in parallel on the given pool.
+     *
+     * The listener is still called from the calling thread only, with
+     * records in file order.
+     *
+     * @param file the data file
+     * @param listener the listener to hand records to
+     * @param pool the pool to decode sections on
+     * @throws IOException on read failure or malformed data
+     */
+    public static void read(File file, Listener listener, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readHeader(readBytes(channel, 0, MAGIC.length + 1));
+
+            // Find all sections, skipping over their content.
+            List<Section> sections = new ArrayList<Section>();
+            long position = MAGIC.length + 1;
+            while( true ) {
+                if ( readBytes(channel, position, 1).readByte() == SECTION_END ) break;
+                DataInputStream header = readBytes(channel, position, SECTION_HEADER_SIZE);
+                Section section = new Section(header.readByte(), header.readInt(), position + SECTION_HEADER_SIZE, header.readLong());
+                sections.add(section);
+                position = section.position + section.length;
+            }
+
+            // The string table comes first, and all other sections need it.
+            List<String> table = new ArrayList<String>();
+            for( Section section : sections ) {
+                if ( section.type != SECTION_STRINGS ) continue;
+                DataInputStream in = readBytes(channel, section.position, section.length);
+                for( int i = 0; i < section.count; i++ ) table.add(readString(in));
+            }
+            String[] strings = table.toArray(new String[table.size()]);
+            IntFunction<String> stringLookup = index -> strings[index];
+
+            // Decode all contacts sections in parallel, then hand them over in order.
+            IntHashMap<Contact> contacts = new IntHashMap<Contact>();
+            List<ForkJoinTask<Contact[]>> contactTasks = new ArrayList<ForkJoinTask<Contact[]>>();
+            int contactCount = 0;
+            for( Section section : sections ) {
+                if ( section.type != SECTION_CONTACTS ) continue;
+                contactCount += section.count;
+                contactTasks.add(pool.submit(() -> {
+                    DataInputStream in = readBytes(channel, section.position, section.length);
+                    Contact[] decoded = new Contact[section.count];
+                    for( int i = 0; i < decoded.length; i++ ) decoded[i] = readContact(in, stringLookup);
+                    return decoded;
+                }));
+            }
+            contacts.ensureCapacity(contactCount);
+            listener.contactCount(contactCount);
+            for( ForkJoinTask<Contact[]> task : contactTasks ) {
+                for( Contact contact : join(task) ) {
+                    contacts.put(contact.getId(), contact);
+                    listener.contact(contact);
+                }
+            }
+
+            // Decode all meetings sections in parallel, now that all contacts are known, then hand them over in order.
+            List<ForkJoinTask<Meeting[]>> meetingTasks = new ArrayList<ForkJoinTask<Meeting[]>>();
+            int meetingCount = 0;
+            for( Section section : sections ) {
+                if ( section.type != SECTION_MEETINGS ) continue;
+                meetingCount += section.count;
+                meetingTasks.add(pool.submit(() -> {
+                    DataInputStream in = readBytes(channel, section.position, section.length);
+                    Meeting[] decoded = new Meeting[section.count];
+                    for( int i = 0; i < decoded.length; i++ ) decoded[i] = readMeeting(in, stringLookup, contacts::get);
+                    return decoded;
+                }));
+            }
+            listener.meetingCount(meetingCount);
+            for( ForkJoinTask<Meeting[]> task : meetingTasks ) {
+                for( Meeting meeting : join(task) ) listener.meeting(meeting);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Binary data file cut short.", e);
+        }
+    }
+
+    /**
+     * Waits for a decoding task, passing on its failure.
+     */
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading.");
+        } catch (ExecutionException e) {
+            if ( e.getCause() instanceof IOException ) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the given number of bytes from the given channel position, without moving the channel.
+     */
+    private static DataInputStream readBytes(FileChannel channel, long position, long length) throws IOException {
+        if ( length > Integer.MAX_VALUE ) throw new IOException("Section too large: " + length);
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while( buffer.hasRemaining() ) {
+            if ( channel.read(buffer, position + buffer.position()) < 0 ) throw new EOFException();
+        }
+        return new DataInputStream(new ByteArrayInputStream(buffer.array()));
+    }
+
+    // ***************************************************************************** //
+    // *                              RECORD FORMATS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Reads and checks the file header.
+     */
+    static void readHeader(DataInput in) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        in.readFully(header);
+        if ( !Arrays.equals(header, MAGIC) ) throw new IOException("Not a binary data file.");
+        byte version = in.readByte();
+        if ( version > VERSION ) throw new IOException("Binary data file version not known: " + version);
+    }
+
+    /**
+     * Writes a contact: id, name and notes.
+     */
+    private static void writeContact(DataOutput out, Contact contact, Map<String, Integer> strings) throws IOException {
+        writeVarLong(out, contact.getId());
+        writeVarLong(out, strings.get(contact.getName()));
+        writeVarLong(out, strings.get(contact.getNotes()));
+    }
+
+    /**
+     * Reads a contact, looking up its strings by string table index.
+     */
+    static Contact readContact(DataInput in, IntFunction<String> strings) throws IOException {
+        int id       = (int) readVarLong(in);
+        String name  = strings.apply((int) readVarLong(in));
+        String notes = strings.apply((int) readVarLong(in));
+        return new ContactImpl(id, name, notes);
+    }
+
+    /**
+     * Writes a meeting: type, id, date, duration if any, notes for past meetings, and contacts.
+     *
+     * Each contact is written as its id shifted left by one, with the low bit
+     * set when the contact is not a known one and is embedded after its id.
+     */
+    private static void writeMeeting(DataOutput out, Meeting meeting, Map<String, Integer> strings,
+            Set<Integer> known) throws IOException {
+        byte type = TYPE_MEETING;
+        if ( meeting instanceof PastMeeting ) type = TYPE_PAST_MEETING;
+        else if ( meeting instanceof FutureMeeting ) type = TYPE_FUTURE_MEETING;
+
+        long duration = meeting.getDurationInMillis();
+        out.writeByte(duration == 0 ? type : type | HAS_DURATION);
+        writeVarLong(out, meeting.getId());
+        writeVarLong(out, zigZag(meeting.getTimeInMillis()));
+        if ( duration != 0 ) writeVarLong(out, duration);
+        if ( type == TYPE_PAST_MEETING ) writeVarLong(out, strings.get(((PastMeeting) meeting).getNotes()));
+
+        Set<Contact> contacts = meeting.getContacts();
+        writeVarLong(out, contacts.size());
+        for( Contact contact : contacts ) {
+            if ( known.contains(contact.getId()) ) {
+                writeVarLong(out, (long) contact.getId() << 1);
+            } else {
+                writeVarLong(out, ((long) contact.getId() << 1) | 1);
+                writeVarLong(out, strings.get(contact.getName()));
+                writeVarLong(out, strings.get(contact.getNotes()));
+            }
+        }
+    }
+
+    /**
+     * Reads a meeting, looking up its strings by string table index and
+     * resolving its contacts with the given known contacts resolver.
+     */
+    static Meeting readMeeting(DataInput in, IntFunction<String> strings, IntFunction<Contact> known) throws IOException {
+        byte flags    = in.readByte();
+        byte type     = (byte) (flags & ~HAS_DURATION);
+        int id        = (int) readVarLong(in);
+        long time     = unZigZag(readVarLong(in));
+        long duration = (flags & HAS_DURATION) != 0 ? readVarLong(in) : 0;
+        String notes = type == TYPE_PAST_MEETING ? strings.apply((int) readVarLong(in)) : null;
+
+        int count = (int) readVarLong(in);
+        Set<Contact> contacts = new HashSet<Contact>();
+        for( int i = 0; i < count; i++ ) {
+            long ref = readVarLong(in);
+            int contactId = (int) (ref >>> 1);
+            if ( (ref & 1) == 0 ) {
+                Contact contact = known.apply(contactId);
+                if ( contact == null ) throw new IOException("Unknown contact id " + contactId + " in meeting " + id);
+                contacts.add(contact);
+            } else {
+                String name = strings.apply((int) readVarLong(in));
+                contacts.add(new ContactImpl(contactId, name, strings.apply((int) readVarLong(in))));
+            }
+        }
+
+        switch (type) {
+            case TYPE_PAST_MEETING : return new PastMeetingImpl(id, time, duration, contacts, notes);
+            case TYPE_FUTURE_MEETING : return new FutureMeetingImpl(id, time, duration, contacts);
+            case TYPE_MEETING : {
+                try {
+                    return new MeetingImpl(id, time, contacts);
+                } catch (Exception e) {
+                    throw new IOException("Cannot load meeting " + id, e);
+                }
+            }
+            default : throw new IOException("Meeting type not known: " + type);
+        }
+    }
+
+    /**
+     * Writes the index section content.
+     */
+    private static void writeIndex(DataOutput out, long[] stringPositions, int[] contactIds, long[] contactPositions,
+            Meeting[] meetings, long[] meetingPositions) throws IOException {
+        // Contacts by id.
+        Integer[] order = ordinals(contactIds.length);
+        Arrays.sort(order, (a, b) -> Integer.compare(contactIds[a], contactIds[b]));
+        out.writeInt(order.length);
+        for( int i : order ) {
+            out.writeInt(contactIds[i]);
+            out.writeLong(contactPositions[i]);
+        }
+
+        // Meetings by id.
+        order = ordinals(meetings.length);
+        Arrays.sort(order, (a, b) -> Integer.compare(meetings[a].getId(), meetings[b].getId()));
+        out.writeInt(order.length);
+        for( int i : order ) {
+            out.writeInt(meetings[i].getId());
+            out.writeLong(meetingPositions[i]);
+        }
+
+        // Meetings by date, then id.
+        MeetingKey[] keys = new MeetingKey[meetings.length];
+        for( int i = 0; i < meetings.length; i++ ) keys[i] = MeetingKey.of(meetings[i]);
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+        out.writeInt(order.length);
+        for( int i : order ) {
+            out.writeLong(keys[i].getTime());
+            out.writeInt(keys[i].getId());
+            out.writeLong(meetingPositions[i]);
+        }
+
+        // Strings by index.
+        out.writeInt(stringPositions.length);
+        for( long position : stringPositions ) out.writeLong(position);
+
+        // Meetings of each contact, in date order as the meetings are now.
+        IntHashMap<List<Integer>> postings = new IntHashMap<List<Integer>>();
+        List<Integer> postingIds = new ArrayList<Integer>();
+        int total = 0;
+        for( int i : order ) {
+            for( Contact contact : meetings[i].getContacts() ) {
+                List<Integer> list = postings.get(contact.getId());
+                if ( list == null ) {
+                    list = new ArrayList<Integer>();
+                    postings.put(contact.getId(), list);
+                    postingIds.add(contact.getId());
+                }
+                list.add(i);
+                total++;
+            }
+        }
+        Collections.sort(postingIds);
+
+        out.writeInt(postingIds.size());
+        long first = 0;
+        for( int id : postingIds ) {
+            int count = postings.get(id).size();
+            out.writeInt(id);
+            out.writeLong(first);
+            out.writeInt(count);
+            first += count;
+        }
+        out.writeInt(total);
+        for( int id : postingIds ) {
+            for( int i : postings.get(id) ) out.writeLong(meetingPositions[i]);
+        }
+    }
+
+    /**
+     * Returns the numbers from 0 to the given count, excluded.
+     */
+    private static Integer[] ordinals(int count) {
+        Integer[] ordinals = new Integer[count];
+        for( int i = 0; i < count; i++ ) ordinals[i] = i;
+        return ordinals;
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIMITIVE FORMATS                             * //
+    // ***************************************************************************** //
+
+    /**
+     * Adds a string to the string table, if not there yet.
+     */
+    private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+        if ( strings.containsKey(s) ) return;
+        strings.put(s, table.size());
+        table.add(s);
+    }
+
+    /**
+     * Writes a string as its UTF-8 byte length followed by its bytes.
+     */
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string.
+     */
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a non negative number in as few bytes as needed, seven bits per byte,
+     * with the high bit set on all bytes but the last.
+     */
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while( (value & ~0x7FL) != 0 ) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarLong.
+     */
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 ) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) return value;
+        }
+        throw new IOException("Malformed variable length number.");
+    }
+
+    /**
+     * Maps signed numbers to non negative ones, so that small negative numbers stay small.
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Reverses zigZag.
+     */
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The header of a section found in a file.
+     */
+    private static class Section {
+        /**
+         * The section type.
+         */
+        final byte type;
+
+        /**
+         * The number of records in the section.
+         */
+        final int count;
+
+        /**
+         * The file position of the section content.
+         */
+        final long position;
+
+        /**
+         * The byte length of the section content.
+         */
+        final long length;
+
+        /**
+         * Constructor.
+         */
+        Section(byte type, int count, long position, long length) {
+            this.type     = type;
+            this.count    = count;
+            this.position = position;
+            this.length   = length;
+        }
+    }
+
+    /**
+     * Buffered writer of sections, filling in each section header once the section is written.
+     */
+    private static class SectionWriter {
+        /**
+         * The channel written to.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The stream counting the bytes written, below the data stream and above the buffer.
+         */
+        private final CountingOutputStream counter;
+
+        /**
+         * The buffered stream over the channel.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * The channel position of the header of the section being written.
+         */
+        private long sectionStart;
+
+        /**
+         * Constructor.
+         *
+         * @param channel the channel to write to
+         * @throws IOException on failure to read the channel position
+         */
+        SectionWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.counter = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16),
+                    channel.position());
+            this.out     = new DataOutputStream(counter);
+        }
+
+        /**
+         * Returns the channel position the next byte will be written at.
+         */
+        long position() {
+            return counter.count;
+        }
+
+        /**
+         * Starts a section, leaving its byte length to be filled in.
+         */
+        void startSection(byte type, int count) throws IOException {
+            sectionStart = position();
+            out.writeByte(type);
+            out.writeInt(count);
+            out.writeLong(0);
+        }
+
+        /**
+         * Ends the section, filling in its byte length.
+         */
+        void endSection() throws IOException {
+            // The header must be in the channel before it is filled in.
+            out.flush();
+            ByteBuffer length = ByteBuffer.allocate(8);
+            length.putLong(0, position() - sectionStart - SECTION_HEADER_SIZE);
+            channel.write(length, sectionStart + 1 + 4);
+        }
+    }
+
+    /**
+     * Stream counting the bytes written through it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        /**
+         * The bytes written so far, including the given start count.
+         */
+        private long count;
+
+        /**
+         * Constructor.
+         *
+         * @param out the stream to write to
+         * @param start the count to start from
+         */
+        CountingOutputStream(OutputStream out, long start) {
+            super(out);
+            this.count = start;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package contactManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock reading the system time only once per tick, on a background thread.
+ *
+ * Reading the time is then only reading a field: no system call and no
+ * allocation, whichever the thread. The time read may be behind by up to
+ * one tick, so the tick is to be kept well below the precision the time
+ * is needed at, e.g.: a few milliseconds for checking whether a meeting
+ * is in the past.
+ *
+ * The ticker thread is a daemon thread, stopped by close(). Clocks returned
+ * by withZone share the ticker with this one.
+ *
+ * @author Vasco
+ *
+ */
+public class CoarseClock extends Clock implements AutoCloseable {
+    /**
+     * The system time in milliseconds at the last tick
+     */
+    private final AtomicLong millis;
+
+    /**
+     * The executor refreshing the time at each tick
+     */
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * The time zone of this clock
+     */
+    private final ZoneId zone;
+
+    /**
+     * Constructor, starting the ticker thread, in the default time zone.
+     *
+     * @param tick the time between two readings of the system time
+     * @param unit the unit of the tick
+     */
+    public CoarseClock(long tick, TimeUnit unit) {
+        if ( tick <= 0 ) throw new IllegalArgumentException("Tick must be positive: " + tick);
+        this.millis = new AtomicLong(System.currentTimeMillis());
+        this.zone   = ZoneId.systemDefault();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CoarseClock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> millis.set(System.currentTimeMillis()), tick, tick, unit);
+    }
+
+    /**
+     * Constructor of a clock sharing the ticker of another.
+     *
+     * @param clock the clock whose ticker to share
+     * @param zone the time zone
+     */
+    private CoarseClock(CoarseClock clock, ZoneId zone) {
+        this.millis = clock.millis;
+        this.ticker = clock.ticker;
+        this.zone   = zone;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if ( zone == null ) throw new NullPointerException("No zone supplied.");
+        if ( zone.equals(this.zone) ) return this;
+        return new CoarseClock(this, zone);
+    }
+
+    /**
+     * Stops the ticker thread, leaving the time as at the last tick, once
+     * any tick under way is over.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        try {
+            ticker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package contactManager;
+
+/**
+ * What adding a future meeting does when an attendee already has a
+ * meeting at an overlapping time.
+ *
+ * Either way, the meetings overlapping a new one can be listed
+ * beforehand with ContactManagerImpl.getConflicts.
+ *
+ * @author Vasco
+ *
+ */
+public enum ConflictPolicy {
+    /**
+     * Add the meeting all the same, as if there were no other meeting.
+     */
+    ALLOW,
+
+    /**
+     * Do not add the meeting, throwing IllegalArgumentException.
+     */
+    REJECT
+}
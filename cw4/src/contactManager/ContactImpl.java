@@ -1,5 +1,7 @@
 package contactManager;
 
+import java.util.function.Consumer;
+
 /**
  * The Contact class implementation.
  * 
@@ -22,6 +24,11 @@ public class ContactImpl implements Contact {
 	 */
 	private String notes;
 
+	/**
+	 * Told about every notes change, if set.
+	 */
+	private Consumer<Contact> notesListener;
+
 	/**
 	 * Constructor.
 	 * 
@@ -67,5 +74,15 @@ public class ContactImpl implements Contact {
 	@Override
 	public void addNotes(String notes) {
 		this.notes = notes;
+		if ( notesListener != null ) notesListener.accept(this);
+	}
+
+	/**
+	 * Sets the listener told about every notes change, e.g.: to log it.
+	 * 
+	 * @param notesListener the listener, or null for none
+	 */
+	void setNotesListener(Consumer<Contact> notesListener) {
+		this.notesListener = notesListener;
 	}
 }
\ No newline at end of file
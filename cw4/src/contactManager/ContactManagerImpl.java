@@ -1,31 +1,62 @@
 package contactManager;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
-import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
  * A class to manage your contacts and meetings. 
  * 
+ * Safe to share between threads. Changes are made one at a time under an
+ * exclusive lock. Lookups by id read optimistically, without taking any
+ * lock, and only read again under a shared lock if a change was made
+ * meanwhile. Queries walking the date and name indexes share a read lock.
+ * 
  * @author Vasco
  *
  */
-public class ContactManagerImpl implements ContactManager {
+public class ContactManagerImpl implements ContactManager, AutoCloseable {
     /**
      * Default path for contacts.
      */
@@ -52,6 +83,56 @@ public class ContactManagerImpl implements ContactManager {
      */
     private final String MEETING_KEY = "meeting";
 
+    /**
+     * The known key name to define the number of records in file.
+     */
+    private final String COUNT_KEY = "count";
+
+    /**
+     * The known key name to define Contact notes changes in the log.
+     */
+    private final String CONTACT_NOTES_KEY = "contactNotes";
+
+    /**
+     * The known key name to define Meeting notes changes in the log.
+     */
+    private final String MEETING_NOTES_KEY = "meetingNotes";
+
+    /**
+     * The suffix added to the data file name to name its log file.
+     */
+    private final String LOG_FILE_SUFFIX = ".log";
+
+    /**
+     * The suffix added to the data file name to name the log of the changes being saved.
+     */
+    private final String ROTATED_LOG_FILE_SUFFIX = ".log.old";
+
+    /**
+     * The suffix added to the data file name to name the file being saved.
+     */
+    private final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * The suffix added to the data file name to name the previous data file.
+     */
+    private final String BACKUP_FILE_SUFFIX = ".bak";
+
+    /**
+     * The log size in bytes above which the log is folded into the data file.
+     */
+    private final long LOG_COMPACTION_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The length of a tick of the meeting wheel in milliseconds.
+     */
+    private final long MEETING_WHEEL_TICK = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The number of buckets of the meeting wheel, a turn taking about 17 hours.
+     */
+    private final int MEETING_WHEEL_BUCKETS = 1024;
+
     /**
      * The meeting type key for PastMeeting.
      */
@@ -70,22 +151,132 @@ public class ContactManagerImpl implements ContactManager {
     /**
      * The last added Contact Id
      */
-    private Integer contactId;
+    private final AtomicInteger contactId = new AtomicInteger();
+
+    /**
+     * The known Contacts indexed by Contact id
+     */
+    private IntHashMap<Contact> contactIndex;
 
     /**
-     * The known Contact list
+     * The known Contacts indexed by name substrings
      */
-    private Set<Contact> contactList;
+    private TrigramIndex nameIndex;
 
     /**
      * The last added Meeting Id free slot
      */
-    private Integer meetingId;
+    private final AtomicInteger meetingId = new AtomicInteger();
+
+    /**
+     * The known Meetings indexed by Meeting id
+     */
+    private IntHashMap<Meeting> meetingIndex;
+
+    /**
+     * The known Meetings ordered by date
+     */
+    private NavigableMap<MeetingKey, Meeting> meetingsByDate;
+
+    /**
+     * The time intervals of the FutureMeetings of each Contact ordered by date, indexed by Contact id
+     */
+    private IntHashMap<IntervalTree> futureMeetingsByContact;
+
+    /**
+     * The time intervals of the PastMeetings of each Contact ordered by date, indexed by Contact id
+     */
+    private IntHashMap<IntervalTree> pastMeetingsByContact;
+
+    /**
+     * The FutureMeetings by date, telling when each becomes a PastMeeting
+     */
+    private TimingWheel meetingWheel;
+
+    /**
+     * The log of all changes since the data file was last saved
+     */
+    private MutationLog mutationLog;
+
+    /**
+     * Guards all indexes: written under the write lock, read optimistically or under the read lock
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * The latest point in time view of all data, kept up to date while a view taken of it is in use, or null
+     */
+    private volatile ContactManagerSnapshot snapshot;
+
+    /**
+     * The latest view handed out by snapshot(), the latest snapshot being dropped once it is collected
+     */
+    private volatile WeakReference<ContactManager> snapshotView = new WeakReference<ContactManager>(null);
+
+    /**
+     * Taken to build the first snapshot
+     */
+    private final Object snapshotLock = new Object();
 
     /**
-     * The known Meeting list
+     * The number of changes made, including those replayed from a log not yet saved
      */
-    private List<Meeting> meetingList;
+    private final AtomicLong changeCount = new AtomicLong();
+
+    /**
+     * The number of changes made when the data file was last saved
+     */
+    private volatile long savedChangeCount;
+
+    /**
+     * Set while the log is being folded into the data file in the background
+     */
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Taken for the whole of a save, so that saves never overlap
+     */
+    private final Object saveLock = new Object();
+
+    /**
+     * Taken to start or stop the periodic flush
+     */
+    private final Object flusherLock = new Object();
+
+    /**
+     * The executor of the periodic flush, if started
+     */
+    private ScheduledExecutorService flusher;
+
+    /**
+     * The thread flushing at exit, until closed
+     */
+    private Thread shutdownHook;
+
+    /**
+     * Set when each change is to be on disk before the method making it returns
+     */
+    private volatile boolean durableWrites;
+
+    /**
+     * The clock telling which meetings are past, the system clock by default
+     */
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * What adding a future meeting overlapping another meeting of an attendee does
+     */
+    private volatile ConflictPolicy conflictPolicy = ConflictPolicy.ALLOW;
+
+    /**
+     * The format the data file is saved in
+     */
+    private DataFileFormat format = DataFileFormat.JSON;
+
+    /**
+     * The JSON Utils handler, referring to known contacts by id
+     */
+    private final JSONUtils jUtils = new JSONUtilsImpl(id -> contactIndex.get(id));
 
     // ***************************************************************************** //
     // *                                CONSTRUCTOR                                * //
@@ -94,22 +285,7 @@ public class ContactManagerImpl implements ContactManager {
      * Default constructor
      */
     public ContactManagerImpl() {
-        this.contactId = 0;
-        this.meetingId = 0;
-        this.contactList = new HashSet<Contact>();
-        this.meetingList = new LinkedList<Meeting>();
-
-        // load all data if any, or create a new file to save data into.
-        try {
-            loadData();
-        } catch (ParseException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        // Add a shutdown hook to call flush() before exiting the application.
-        this.addShutdownHook();
+        initialise();
     }
     
     /**
@@ -119,22 +295,21 @@ public class ContactManagerImpl implements ContactManager {
      */
     public ContactManagerImpl(String fileName) {
         filePathName = fileName;
-        this.contactId = 0;
-        this.meetingId = 0;
-        this.contactList = new HashSet<Contact>();
-        this.meetingList = new LinkedList<Meeting>();
-
-        // load all data if any, or create a new file to save data into.
-        try {
-            loadData();
-        } catch (ParseException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        initialise();
+    }
 
-        // Add a shutdown hook to call flush() before exiting the application.
-        this.addShutdownHook();
+    /**
+     * Constructor to store data on a different file, in the given format.
+     * 
+     * A data file already saved in the other format is still loaded.
+     * 
+     * @param fileName the file to store all data
+     * @param format the format to save data in
+     */
+    public ContactManagerImpl(String fileName, DataFileFormat format) {
+        filePathName = fileName;
+        this.format = format;
+        initialise();
     }
     
     // ***************************************************************************** //
@@ -146,27 +321,7 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public int addFutureMeeting(Set<Contact> contacts, Calendar date) {
-        // Throw exception if any of the given contacts it not known.
-        for(Contact contact : contacts ) {
-            // If we do not have one contact for each of the given contacts, throw exception
-            Long contactFound = contactList.stream().filter(c -> c.getId() == contact.getId() ).count(); 
-            if ( !(contactFound == 1) ) throw new IllegalArgumentException("Not a valid contact id: " + contact.getId());
-        }
-
-        // If date is in the past, throw exception
-        if ( date.before(Calendar.getInstance()) ) throw new IllegalArgumentException("Cannot add FutureMeeting with past date.");
-
-        // Create a new future meeting to be added.
-        FutureMeeting futureMeeting = new FutureMeetingImpl(meetingId+1, date, contacts);
-
-        // Add the future meeting.
-        meetingList.add(futureMeeting);
-
-        // Increment the meeting count.
-        meetingId++;
-
-        // Return the meeting id created.
-        return meetingId;
+        return addFutureMeeting(contacts, date, 0);
     }
 
     /**
@@ -180,11 +335,8 @@ public class ContactManagerImpl implements ContactManager {
         // If null, there was not meeting with that id.
         if ( meeting == null ) return null;
 
-        // Get date
-        Calendar meetingDate = meeting.getDate();
-
         // Check if date is in the future
-        if ( meetingDate.after(Calendar.getInstance()) ) throw new IllegalArgumentException("Cannot get a PastMeeting with a future date.");
+        if ( meeting.getTimeInMillis() > clock.millis() ) throw new IllegalArgumentException("Cannot get a PastMeeting with a future date.");
 
         // Cast it into a PastMeeting
         return (PastMeeting) meeting;
@@ -201,13 +353,11 @@ public class ContactManagerImpl implements ContactManager {
         // No meeting found, return null.
         if ( meeting == null ) return null;
 
-        Calendar date = meeting.getDate();
-
         // Check date is not in the past, or throw exception.
-        if ( date.before(Calendar.getInstance()) ) throw new IllegalArgumentException("Cannot get a FutureMeeting with a past date.");
+        if ( meeting.getTimeInMillis() < clock.millis() ) throw new IllegalArgumentException("Cannot get a FutureMeeting with a past date.");
 
         Set<Contact> contacts = meeting.getContacts();
-        FutureMeeting futureMeeting = new FutureMeetingImpl(id, date, contacts);
+        FutureMeeting futureMeeting = new FutureMeetingImpl(id, meeting.getDate(), meeting.getDurationInMillis(), contacts);
         return futureMeeting;
     }
 
@@ -216,13 +366,10 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public Meeting getMeeting(int id) {
-        // Get the meeting with the requested meeting id.
-        for( Meeting meetingFound : meetingList ) {
-            if ( meetingFound.getId() == id ) return meetingFound;
-        }
+        expireMeetings();
 
-        // If all the above fails, return null.
-        return null;
+        // Get the meeting with the requested meeting id, or null if there is none.
+        return readOptimistically(() -> meetingIndex.get(id));
     }
 
     /**
@@ -233,26 +380,21 @@ public class ContactManagerImpl implements ContactManager {
         // If no contact given, return an empty list
         if ( contact == null ) return new LinkedList<Meeting>();
 
-        // If contact is not valid, throw exception
-        if ( !hasContact(contact.getId()) ) throw new IllegalArgumentException("Cannot find contact id: " + contact.getId());
+        expireMeetings();
+        return readLocked(() -> {
+            // If contact is not valid, throw exception
+            if ( !hasContact(contact.getId()) ) throw new IllegalArgumentException("Cannot find contact id: " + contact.getId());
 
-        // Final FutureMeeting list to be returned
-        List<Meeting> finalFutureMeetingList = new LinkedList<Meeting>();
+            // Final FutureMeeting list to be returned
+            List<Meeting> finalFutureMeetingList = new LinkedList<Meeting>();
 
-        for(Meeting meeting : meetingList ) {
-            // Only interested in the FutureMeeting types.
-            if ( FutureMeeting.class.isInstance(meeting)) {
-                Set<Contact> contacts = meeting.getContacts();
-                // Check if this meeting has this contact in.
-                Long numberOfContactsFound = contacts.stream().filter(c -> c.getId() == contact.getId() ).count();
-                  if ( numberOfContactsFound == 1 ) finalFutureMeetingList.add(meeting);
+            // Go over this contact's future meetings, already sorted by date.
+            for( MeetingKey key : getMeetingKeys(futureMeetingsByContact, contact.getId()) ) {
+                finalFutureMeetingList.add(meetingIndex.get(key.getId()));
             }
-        }
 
-        // Sort the list.
-        Collections.sort(finalFutureMeetingList, new MeetingComparator());
-
-        return finalFutureMeetingList;
+            return finalFutureMeetingList;
+        });
     }
 
     /**
@@ -260,20 +402,12 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public List<Meeting> getFutureMeetingList(Calendar date) {
-        List<Meeting> finalMeetingList = new LinkedList<Meeting>();
-
         // Ensure that if date is null, an empty list is returned
-        if ( date == null ) return finalMeetingList;
+        if ( date == null ) return new LinkedList<Meeting>();
 
-        for( Meeting meeting : meetingList ) {
-            // Check if meeting is set after given date
-            if ( meeting.getDate().after(date) ) finalMeetingList.add(meeting);
-        }
-
-        // Get the list sorted by date.
-        Collections.sort(finalMeetingList,new MeetingComparator());
-
-        return finalMeetingList;
+        // All meetings set after given date, already sorted by date.
+        expireMeetings();
+        return readLocked(() -> new LinkedList<Meeting>(meetingsByDate.tailMap(MeetingKey.lastAt(date.getTimeInMillis()), false).values()));
     }
 
     /**
@@ -284,29 +418,22 @@ public class ContactManagerImpl implements ContactManager {
         // If no contact given, return empty list.
         if ( contact == null ) return new LinkedList<PastMeeting>();
 
-        // If contact does not exist, throw exception
-        if ( contactList.stream().filter(c -> c.getId() == contact.getId()).count() == 0 ) 
-            throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
-
-        // The final returning List object
-        List<PastMeeting> finalMeetingList = new LinkedList<PastMeeting>();
+        expireMeetings();
+        return readLocked(() -> {
+            // If contact does not exist, throw exception
+            if ( !hasContact(contact.getId()) ) 
+                throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
 
-        // Go over each meeting and check if the above contact exists in it.
-        for(Meeting meeting : meetingList ) {
-            // If this is not a PastMeeting, skip to next.
-            if ( !PastMeeting.class.isInstance(meeting)) continue;
+            // The final returning List object
+            List<PastMeeting> finalMeetingList = new LinkedList<PastMeeting>();
 
-            // Check if we have the expected contact in this meeting
-            Set<Contact> contactList = meeting.getContacts();
-            if ( contactList.stream().filter(c -> c.getId() == contact.getId()).count() == 1 ) {
-                // Found the contact id in the list of contacts for this meeting, add it to the final list.
-                finalMeetingList.add((PastMeeting)meeting);
+            // Go over this contact's past meetings, already sorted by date.
+            for( MeetingKey key : getMeetingKeys(pastMeetingsByContact, contact.getId()) ) {
+                finalMeetingList.add((PastMeeting) meetingIndex.get(key.getId()));
             }
-        }
 
-        Collections.sort(finalMeetingList, new MeetingComparator());
-
-        return finalMeetingList;
+            return finalMeetingList;
+        });
     }
 
     /**
@@ -314,32 +441,41 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) { 
-        // Check if contacts set is null
-        if ( contacts == null ) throw new NullPointerException("No contacts supplied.");
+        CompletableFuture<Void> logged;
+        long stamp = lock.writeLock();
+        try {
+            // Check if contacts set is null
+            if ( contacts == null ) throw new NullPointerException("No contacts supplied.");
 
-        // Check if date is null
-        if ( date == null ) throw new NullPointerException("No date supplied.");
+            // Check if date is null
+            if ( date == null ) throw new NullPointerException("No date supplied.");
 
-        // Check if text null
-        if ( text == null ) throw new NullPointerException("No notes supplied.");
+            // Check if text null
+            if ( text == null ) throw new NullPointerException("No notes supplied.");
 
-        // Check if contacts set is empty
-        if ( contacts.size() == 0 ) throw new IllegalArgumentException("Empty set of contacts.");
+            // Check if contacts set is empty
+            if ( contacts.size() == 0 ) throw new IllegalArgumentException("Empty set of contacts.");
 
-        // Check all contacts to see if any does not exist
-        for(Contact contact : contacts ) {
-            if( !hasContact(contact.getId()) ) 
-                throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
-        }
+            // Check all contacts to see if any does not exist
+            for(Contact contact : contacts ) {
+                if( !hasContact(contact.getId()) ) 
+                    throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
+            }
+
+            // Create a new past meeting, taking the next meeting id.
+            PastMeeting pastMeeting = new PastMeetingImpl(meetingId.incrementAndGet(), date, contacts, text);
 
-        // Create a new past meeting
-        PastMeeting pastMeeting = new PastMeetingImpl(contactId+1, date, contacts, text);
+            // Log it before adding.
+            logged = logRecord(MEETING_KEY, jUtils.toJSONObject(pastMeeting));
 
-        // Increment the internal contact id count.
-        contactId++;
+            // Add the new meeting in
+            indexMeeting(pastMeeting);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
 
-        // Add the new meeting in
-        meetingList.add(pastMeeting);
+        // Return once the change is logged.
+        awaitLogged(logged);
     }
 
     /**
@@ -347,34 +483,39 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public void addMeetingNotes(int id, String text) {
-        // Throw exception if notes are null
-        if ( text == null ) 
-            throw new NullPointerException("No text supplied.");
+        CompletableFuture<Void> logged;
+        long stamp = lock.writeLock();
+        try {
+            // Throw exception if notes are null
+            if ( text == null ) 
+                throw new NullPointerException("No text supplied.");
 
-        // Get the respective meeting object for the given meeting id
-        Meeting meeting = getMeeting(id);
+            // Get the respective meeting object for the given meeting id, already holding the lock.
+            Meeting meeting = meetingIndex.get(id);
 
-        // Meeting must exist or throw exception.
-        if ( meeting == null ) 
-            throw new IllegalArgumentException("No meeting found with id: " + id);
+            // Meeting must exist or throw exception.
+            if ( meeting == null ) 
+                throw new IllegalArgumentException("No meeting found with id: " + id);
 
-        // Get the meeting's date.
-        Calendar meetingDate = meeting.getDate();
+            // Not allowed to add notes to a meeting set in the future.
+            if ( meeting.getTimeInMillis() > clock.millis() ) 
+                throw new IllegalStateException("Cannot add notes to a meeting set in the future.");
 
-        // Not allowed to add notes to a meeting set in the future.
-        if ( meetingDate.after(Calendar.getInstance())) 
-            throw new IllegalStateException("Cannot add notes to a meeting set in the future.");
+            // Create the new PastMeeting with the notes
+            PastMeeting newPastMeeting = PastMeetingImpl.of(meeting, text);
 
-        // Get the contacts
-        Set<Contact> meetingContacts = meeting.getContacts();
+            // Log the notes before adding them.
+            logged = logRecord(MEETING_NOTES_KEY, toNotesRecord(id, text));
 
-        // Create the new PastMeeting with the notes
-        PastMeeting newPastMeeting = new PastMeetingImpl(id, meetingDate, meetingContacts, text);
+            // When adding notes to a meeting, it becomes a PastMeeting.
+            // Replace the old meeting with the new PastMeeting under the same id.
+            indexMeeting(newPastMeeting);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
 
-        // When adding notes to a meeting, it becomes a PastMeeting.
-        // Remove old meeting and add the new PastMeeting.
-        meetingList.remove(meeting);
-        meetingList.add(newPastMeeting);
+        // Return once the change is logged.
+        awaitLogged(logged);
     }
 
     /**
@@ -384,9 +525,18 @@ public class ContactManagerImpl implements ContactManager {
     public void addNewContact(String name, String notes) {
         if ( notes == null ) throw new NullPointerException("No notes supplied.");
         if ( name == null )  throw new NullPointerException("No name supplied.");
-        Contact contact = new ContactImpl(this.contactId+1, name, notes);
-        this.contactId++;
-        contactList.add(contact);
+        CompletableFuture<Void> logged;
+        long stamp = lock.writeLock();
+        try {
+            Contact contact = new ContactImpl(contactId.incrementAndGet(), name, notes);
+            logged = logRecord(CONTACT_KEY, jUtils.toJSONObject(contact));
+            indexContact(contact);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Return once the change is logged.
+        awaitLogged(logged);
     }
 
     /**
@@ -394,16 +544,14 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public Set<Contact> getContacts(int... ids) {
-        Set<Contact> result = new HashSet<Contact>();
-        for( int i : ids ) {
-            List<Contact> list = contactList.stream()
-                .filter(contact -> contact.getId() == i )
-                .collect(Collectors.toList());
-
-            for( Contact c : list ) {
-                result.add(c);
+        Set<Contact> result = readOptimistically(() -> {
+            Set<Contact> found = new HashSet<Contact>();
+            for( int i : ids ) {
+                Contact contact = contactIndex.get(i);
+                if ( contact != null ) found.add(contact);
             }
-        }
+            return found;
+        });
 
         // If no result is found, must throw exception as per interface
         if (result.size() == 0) throw new IllegalArgumentException("No contact found.");
@@ -417,9 +565,7 @@ public class ContactManagerImpl implements ContactManager {
     @Override
     public Set<Contact> getContacts(String name) {
         if ( name == null ) throw new NullPointerException("No name supplied.");
-        return contactList.stream()
-                .filter(contact -> contact.getName().contains(name))
-                .collect(Collectors.toSet());
+        return readLocked(() -> nameIndex.search(name));
     }
 
     /**
@@ -435,235 +581,1276 @@ public class ContactManagerImpl implements ContactManager {
     }
 
     // ***************************************************************************** //
-    // *                             PRIVATE METHODS                               * //
+    // *                               BATCH CHANGES                               * //
     // ***************************************************************************** //
 
     /**
-     * Shutdown hook to always call flush() at exit.
+     * Adds many new contacts at once, e.g.: when importing them.
+     * 
+     * The whole batch is checked before any contact is added, then all are
+     * added under one lock, with a block of ids taken at once. Either all
+     * contacts are added, or none is.
+     * 
+     * @param names the contacts' names
+     * @param notes the contacts' notes, one for each name
+     * @return the ids of the contacts added, in the given order
+     * @throws NullPointerException if any name or notes are null
+     * @throws IllegalArgumentException if there are not as many notes as names
      */
-    private void addShutdownHook() {
-        // Set a ShutdownHook to call flush() at exit.
-        Runtime.getRuntime().addShutdownHook(
-            new Thread(
-                new Runnable() {
-                    public void run() {
-                        flush();
-                    }
-                }
-            )
-        );
+    public int[] addNewContacts(List<String> names, List<String> notes) {
+        // Check the whole batch before changing anything.
+        if ( names == null ) throw new NullPointerException("No names supplied.");
+        if ( notes == null ) throw new NullPointerException("No notes supplied.");
+        List<String> nameList  = new ArrayList<String>(names);
+        List<String> notesList = new ArrayList<String>(notes);
+        if ( nameList.size() != notesList.size() ) throw new IllegalArgumentException("Not as many notes as names.");
+        for( int i = 0; i < nameList.size(); i++ ) {
+            if ( notesList.get(i) == null ) throw new NullPointerException("No notes supplied.");
+            if ( nameList.get(i) == null )  throw new NullPointerException("No name supplied.");
+        }
+
+        int[] ids = new int[nameList.size()];
+        List<CompletableFuture<Void>> logged = new ArrayList<CompletableFuture<Void>>(ids.length);
+        long stamp = lock.writeLock();
+        try {
+            // Take a block of ids, and make room for all contacts, at once.
+            int first = contactId.getAndAdd(ids.length) + 1;
+            ensureCapacity(ids.length, 0);
+
+            for( int i = 0; i < ids.length; i++ ) {
+                Contact contact = new ContactImpl(first + i, nameList.get(i), notesList.get(i));
+                logged.add(logRecord(CONTACT_KEY, jUtils.toJSONObject(contact)));
+                indexContact(contact);
+                ids[i] = contact.getId();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Return once all changes are logged.
+        awaitLogged(CompletableFuture.allOf(logged.toArray(new CompletableFuture<?>[logged.size()])));
+        return ids;
     }
 
     /**
-     * Checks if a contact Id has already been added to the contact list
+     * Adds many meetings to be held in the future at once, e.g.: when importing them.
+     * 
+     * The whole batch is checked before any meeting is added, each contact
+     * only once however many meetings it is in. All meetings are then added
+     * under one lock, with a block of ids taken at once. Either all meetings
+     * are added, or none is.
+     * 
+     * @param contacts the contacts of each meeting
+     * @param dates the date of each meeting, one for each set of contacts
+     * @return the ids of the meetings added, in the given order
+     * @throws NullPointerException if any contacts or date are null
+     * @throws IllegalArgumentException if any meeting is set for a time in the past,
+     *     if any contact is unknown, or if there are not as many dates as sets of contacts
      */
-    private boolean hasContact(int contactId) {
-        if ( contactId == 0 ) return false;
-
-        Long hasContact = contactList.stream()
-                .filter(contact->contact.getId()==contactId).count();
+    public int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates) {
+        return addMeetings(contacts, dates, null, null);
+    }
 
-        if ( hasContact > 0 ) return true;
+    /**
+     * Adds many meetings to be held in the future at once, each lasting the
+     * given time, e.g.: when scheduling them in bulk.
+     * 
+     * As with addFutureMeetings, either all meetings are added, or none is.
+     * If set to reject conflicts, see setConflictPolicy, none is added if any
+     * meeting overlaps a meeting of any of its contacts, whether already
+     * added or earlier in the batch.
+     * 
+     * @param contacts the contacts of each meeting
+     * @param dates the date of each meeting, one for each set of contacts
+     * @param durations how long each meeting lasts in milliseconds, one for each set of contacts
+     * @return the ids of the meetings added, in the given order
+     * @throws NullPointerException if any contacts, date or duration are null
+     * @throws IllegalArgumentException if any meeting is set for a time in the past, if any
+     *     contact is unknown, if any duration is negative, if there are not as many dates
+     *     and durations as sets of contacts, or if rejecting conflicts and any meeting overlaps another
+     */
+    public int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<Long> durations) {
+        if ( durations == null ) throw new NullPointerException("No durations supplied.");
+        return addMeetings(contacts, dates, durations, null);
+    }
 
-        return false;
+    /**
+     * Adds many meetings that have already taken place at once, e.g.: when importing them.
+     * 
+     * The whole batch is checked before any meeting is added, each contact
+     * only once however many meetings it is in. All meetings are then added
+     * under one lock, with a block of ids taken at once. Either all meetings
+     * are added, or none is.
+     * 
+     * @param contacts the contacts of each meeting
+     * @param dates the date of each meeting, one for each set of contacts
+     * @param texts the notes of each meeting, one for each set of contacts
+     * @return the ids of the meetings added, in the given order
+     * @throws NullPointerException if any contacts, date or notes are null
+     * @throws IllegalArgumentException if any set of contacts is empty, if any
+     *     contact is unknown, or if there are not as many dates and notes as sets of contacts
+     */
+    public int[] addNewPastMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts) {
+        if ( texts == null ) throw new NullPointerException("No notes supplied.");
+        return addMeetings(contacts, dates, null, texts);
     }
 
+    // ***************************************************************************** //
+    // *                                 CONFLICTS                                 * //
+    // ***************************************************************************** //
+
     /**
-     * Checks if a meeting Id has already been added to the meeting list
+     * Adds a new meeting to be held in the future, lasting the given time.
+     * 
+     * If set to reject conflicts, see setConflictPolicy, the meeting is not
+     * added if any of its contacts has another meeting, past or future,
+     * overlapping it. Each contact's meetings are kept in an IntervalTree,
+     * so the check costs O(log n + k) for each contact, with k overlapping
+     * meetings.
+     * 
+     * @param contacts a list of contacts that will participate in the meeting
+     * @param date the date on which the meeting will take place
+     * @param duration how long the meeting lasts, in milliseconds
+     * @return the ID for the meeting
+     * @throws IllegalArgumentException if the meeting is set for a time in the past,
+     *     if any contact is unknown / non-existent, if the duration is negative,
+     *     or if rejecting conflicts and the meeting overlaps another of any contact
      */
-    private boolean hasMeeting(int meetingId) {
-        if ( meetingId == 0 ) return false;
+    public int addFutureMeeting(Set<Contact> contacts, Calendar date, long duration) {
+        if ( duration < 0 ) throw new IllegalArgumentException("Negative meeting duration: " + duration);
+        int id;
+        CompletableFuture<Void> logged;
+        long stamp = lock.writeLock();
+        try {
+            // Throw exception if any of the given contacts it not known.
+            for(Contact contact : contacts ) {
+                // If we do not have one contact for each of the given contacts, throw exception
+                if ( !hasContact(contact.getId()) ) throw new IllegalArgumentException("Not a valid contact id: " + contact.getId());
+            }
 
-        Long hasMeeting = meetingList.stream()
-                .filter(meeting->meeting.getId() == meetingId).count();
+            // If date is in the past, throw exception
+            if ( date.getTimeInMillis() < clock.millis() ) throw new IllegalArgumentException("Cannot add FutureMeeting with past date.");
 
-        if ( hasMeeting > 0 ) return true;
+            // If any contact is busy meanwhile, throw exception if so configured.
+            checkConflicts(contacts, date.getTimeInMillis(), date.getTimeInMillis() + duration, null);
 
-        return false;
+            // Take the next meeting id.
+            id = meetingId.incrementAndGet();
+
+            // Create a new future meeting to be added.
+            FutureMeeting futureMeeting = new FutureMeetingImpl(id, date, duration, contacts);
+
+            // Log it before adding.
+            logged = logRecord(MEETING_KEY, jUtils.toJSONObject(futureMeeting));
+
+            // Add the future meeting.
+            indexMeeting(futureMeeting);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Return once the change is logged, and the meeting id created.
+        awaitLogged(logged);
+        return id;
     }
 
     /**
-     * Loads all data from the file into memory.
+     * Returns the meetings, past or future, of any of the given contacts
+     * overlapping the given time, e.g.: to report double bookings before
+     * adding a meeting, whatever the conflict policy.
      * 
-     * If the file does not exists, creates one.
+     * The list is chronologically sorted and has no duplicates.
+     * 
+     * @param contacts the contacts
+     * @param date the start of the time
+     * @param duration how long the time lasts, in milliseconds
+     * @return the overlapping meetings, maybe none
+     * @throws IllegalArgumentException if the duration is negative
      */
-    private void loadData() throws ParseException, IOException {
-        // Create a new instance of the JUtils.
-        JSONUtils jUtils = new JSONUtilsImpl();
+    public List<Meeting> getConflicts(Set<Contact> contacts, Calendar date, long duration) {
+        if ( contacts == null ) throw new NullPointerException("No contacts supplied.");
+        if ( date == null ) throw new NullPointerException("No date supplied.");
+        if ( duration < 0 ) throw new IllegalArgumentException("Negative meeting duration: " + duration);
+
+        long start = date.getTimeInMillis();
+        expireMeetings();
+        return readLocked(() -> {
+            List<Meeting> conflicts = new LinkedList<Meeting>();
+            for( MeetingKey key : getConflictKeys(contacts, start, start + duration, null) ) {
+                conflicts.add(meetingIndex.get(key.getId()));
+            }
+            return conflicts;
+        });
+    }
 
-        // Create a local file handler
-        File file = new File(filePathName);
+    /**
+     * Sets what adding a future meeting overlapping another meeting of any
+     * of its contacts does, ConflictPolicy.ALLOW by default.
+     * 
+     * @param conflictPolicy the conflict policy
+     */
+    public void setConflictPolicy(ConflictPolicy conflictPolicy) {
+        if ( conflictPolicy == null ) throw new NullPointerException("No conflict policy supplied.");
+        this.conflictPolicy = conflictPolicy;
+    }
 
-        // If no file, nothing to be loaded.
-        if ( !file.exists() ) return;
+    // ***************************************************************************** //
+    // *                                FREE SLOTS                                 * //
+    // ***************************************************************************** //
 
-        // Prepare to load from file.
-        BufferedReader in = null;
-        try {
-            in = new BufferedReader(new FileReader(file));
-            String line;
-            while((line = in.readLine()) != null ) {
-                JSONParser parser = new JSONParser();
-                JSONObject jo     = (JSONObject) parser.parse(line);
-
-                // If the json object is not null, collect the key values and then 
-                // loop through them, converting the values into the expected object form
-                @SuppressWarnings("rawtypes")
-                Iterator joIterator = jo.keySet().iterator();
-
-                // Loop through all available keys to load from file.
-                while( joIterator.hasNext()) {
-
-                    // Get the next key
-                    String joKey = joIterator.next().toString();
-
-                    // Grab the value associated to the above key
-                    JSONArray joArray = (JSONArray) parser.parse(jo.get(joKey).toString());
-
-                    // Instantiate a new JSON Object element
-                    JSONObject element = new JSONObject();
-
-                    // Switch for all possible expected Object keys to process data
-                    // e.g.: Contact Object, Meeting Objects
-                    switch (joKey) {
-
-                        // Check if found joKey is a CONTACT_KEY
-                        case CONTACT_KEY : {
-                           // Loop through all elements and load them into the contactList.
-                           for( int i = 0; i < joArray.size(); i++ ) {
-                               element = (JSONObject) joArray.get(i);
-                               // Do not add multiple contacts of the same id
-                               Contact c = jUtils.toContact(element);
-                               if( !hasContact(c.getId()) ) {
-                                   contactList.add(jUtils.toContact(element));
-                                   contactId++;
-                               }
-                           }
-                           break;
-                        }
-                        // Check if the found joKey is a MEETING_KEY
-                        case MEETING_KEY : {
-                            // Loop through all elements and load them into the meetingList.
-                            for( int i = 0; i < joArray.size(); i++ ) {
-                                element = (JSONObject) joArray.get(i);
-                                String meetingType = element.get("type").toString();
-                                switch (meetingType) {
-                                    case TYPE_MEETING : {
-                                        Meeting m = jUtils.toMeeting(element);
-                                        if( !hasMeeting(m.getId()) ) {
-                                            meetingList.add(jUtils.toMeeting(element));
-                                            meetingId++;
-                                        }
-                                        break;
-                                    }
-                                    case TYPE_PAST_MEETING : {
-                                        PastMeeting m = jUtils.toPastMeeting(element);
-                                        if( !hasMeeting(m.getId()) ) {
-                                            meetingList.add(jUtils.toPastMeeting(element));
-                                            meetingId++;
-                                        }
-                                        break;
-                                    }
-                                    case TYPE_FUTURE_MEETING : {
-                                        FutureMeeting m = jUtils.toFutureMeeting(element);
-                                        if( !hasMeeting(m.getId()) ) {
-                                            meetingList.add(jUtils.toFutureMeeting(element));
-                                            meetingId++;
-                                        }
-                                        break;
-                                    }
-                                    default : {
-                                        throw new IllegalArgumentException("Meeting type not known: " + meetingType);
-                                    }
-                                }
-                            }
-                            break;
-                        }
-                        default : {
-                            // If list key is defined in class and found in file but not found code to deal with it,
-                            // this is an alert will tell the developer to implement this part of the code. 
-                            System.out.println("'" + joKey + "' is not implemented.");
-                        }
-                    }
+    /**
+     * Returns the times at which all the given contacts are free for the
+     * given duration, between the given dates, e.g.: to find the first time
+     * a meeting with all of them can be set.
+     * 
+     * Each time is the start of a period in which no contact has a meeting,
+     * past or future, long enough for the duration, and only the earliest
+     * time of each period is returned. A slot never overlaps a meeting, as
+     * told by getConflicts.
+     * 
+     * The meetings of all contacts are merged in date order, as they are
+     * read from each contact's IntervalTree, through a priority queue of one
+     * cursor per contact and meeting type. The merge stops once the limit is
+     * reached, so only meetings up to the last slot found are read.
+     * 
+     * @param contacts the contacts who must all be free
+     * @param from the earliest start of a slot
+     * @param to the latest end of a slot
+     * @param duration how long each slot must last, in milliseconds
+     * @param limit the most slots returned
+     * @return the start of each slot, chronologically sorted, in the time zone of from (maybe empty)
+     * @throws IllegalArgumentException if any contact is unknown, or the duration or limit is negative
+     */
+    public List<Calendar> findFreeSlots(Set<Contact> contacts, Calendar from, Calendar to, long duration, int limit) {
+        if ( contacts == null ) throw new NullPointerException("No contacts supplied.");
+        if ( from == null || to == null ) throw new NullPointerException("No date supplied.");
+        if ( duration < 0 ) throw new IllegalArgumentException("Negative slot duration: " + duration);
+        if ( limit < 0 ) throw new IllegalArgumentException("Negative slot limit: " + limit);
+
+        List<Long> slots = readLocked(() -> {
+            // Start a cursor on the meetings of each contact not over by the start.
+            PriorityQueue<IntervalTree.Cursor> queue = new PriorityQueue<IntervalTree.Cursor>(Math.max(1, 2 * contacts.size()),
+                    (first, second) -> first.getKey().compareTo(second.getKey()));
+            for( Contact contact : contacts ) {
+                if ( !hasContact(contact.getId()) ) throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
+                for( IntHashMap<IntervalTree> byContact : Arrays.asList(futureMeetingsByContact, pastMeetingsByContact) ) {
+                    IntervalTree intervals = byContact.get(contact.getId());
+                    if ( intervals == null ) continue;
+                    IntervalTree.Cursor cursor = intervals.cursor(from.getTimeInMillis());
+                    if ( cursor.next() ) queue.add(cursor);
                 }
             }
 
-            // Close Buffer if not closed yet.
-            if ( in != null ) in.close();
-
-        } catch (ParseException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+            // A slot takes up at least the millisecond it starts at, as a meeting does.
+            long need = Math.max(duration, 1);
+            long end  = to.getTimeInMillis();
+            long free = from.getTimeInMillis();
+            List<Long> found = new ArrayList<Long>();
+
+            // Take the meetings of all contacts in date order, each gap between them long enough a slot.
+            while( found.size() < limit && free <= end - need ) {
+                IntervalTree.Cursor next = queue.poll();
+                if ( next == null || next.getStart() - free >= need ) found.add(free);
+                if ( next == null ) break;
+
+                // Everyone is free again once this meeting is over, unless another is under way.
+                free = Math.max(free, next.getEnd());
+                if ( next.next() ) queue.add(next);
+            }
+            return found;
+        });
+
+        // Give the slots in the time zone asked with.
+        List<Calendar> result = new ArrayList<Calendar>(slots.size());
+        for( long slot : slots ) {
+            Calendar date = (Calendar) from.clone();
+            date.setTimeInMillis(slot);
+            result.add(date);
         }
+        return result;
     }
 
+    // ***************************************************************************** //
+    // *                                 SNAPSHOTS                                 * //
+    // ***************************************************************************** //
+
     /**
-     * Saves all data from memory into file.
+     * Returns a read-only view of all data as it is now, with the same
+     * queries as this contact manager, which changes made afterwards do
+     * not affect.
      * 
-     * If the file does not exists, creates one.
+     * The view is never changed but replaced on each change by a new one
+     * sharing all unchanged parts with it, see PersistentTreeMap. Taking a
+     * view therefore costs nothing, and reading it, however long for,
+     * takes no lock and holds no change back.
+     * 
+     * The first view is built from all data under the read lock. Changes
+     * then keep it up to date at a small cost each, for as long as the
+     * latest view handed out is in use. Once it is no longer referenced,
+     * it is dropped, so that changes cost nothing more, and the next view
+     * is built again.
+     * 
+     * The view tells past meetings by the clock set when it is taken, see setClock.
+     * 
+     * @return the view of all data as it is now
      */
-    @SuppressWarnings("unchecked")
-    private void saveData() throws IOException {
-
-        // Create a local File handler
-        File file = new File(filePathName);
+    public ContactManager snapshot() {
+        ContactManagerSnapshot current = snapshot;
+        if ( current != null ) return handOut(current);
 
-        // Create a new file if the given does not exist.
-        if ( !file.exists() ) {
+        // Build the first view once, while no change can be made.
+        synchronized (snapshotLock) {
+            long stamp = lock.readLock();
             try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
+                if ( snapshot == null ) {
+                    current = ContactManagerSnapshot.EMPTY;
+                    for( Contact contact : contactIndex.values() ) current = current.withContact(contact);
+                    for( Meeting meeting : meetingIndex.values() ) current = current.withMeeting(meeting);
+                    snapshot = current;
+                }
+
+                // Hand the view out before any change can find it unused.
+                return handOut(snapshot);
+            } finally {
+                lock.unlockRead(stamp);
             }
         }
-        else {
-            // If file exists, deletes it and creates a new one, to be sure we have a new clean file.
-            file.delete();
+    }
+
+    // ***************************************************************************** //
+    // *                                DURABILITY                                 * //
+    // ***************************************************************************** //
+
+    /**
+     * Sets whether each change must be on disk before the method making it returns.
+     * 
+     * Without durable writes, changes are logged as they are made but not
+     * forced to disk, see startPeriodicFlush. With durable writes, the log
+     * records of all threads changing data at the same time are written by
+     * a single thread and forced to disk together, and each thread waits
+     * for its own record only, so that they share the cost of forcing.
+     * If a record cannot be written or forced, the method making the change
+     * throws UncheckedIOException rather than return as if it were durable.
+     * 
+     * @param durableWrites true for each change to be on disk before returning
+     */
+    public void setDurableWrites(boolean durableWrites) {
+        this.durableWrites = durableWrites;
+    }
+
+    // ***************************************************************************** //
+    // *                                   CLOCK                                   * //
+    // ***************************************************************************** //
+
+    /**
+     * Sets the clock telling which meetings are past and which are future.
+     * 
+     * Only the time in milliseconds is read from the clock, on each check of
+     * a meeting date, so a CoarseClock saves reading the system time on every
+     * check, and a fixed clock (see Clock.fixed) makes checks independent of
+     * the time at which they run.
+     * 
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        if ( clock == null ) throw new NullPointerException("No clock supplied.");
+        this.clock = clock;
+    }
+
+    // ***************************************************************************** //
+    // *                              PERIODIC FLUSH                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Starts flushing in the background at the given period, replacing any
+     * period set before. Each flush only happens if anything changed since
+     * the data file was last saved.
+     * 
+     * All changes are logged as they are made, but the log is not forced to
+     * disk. The period therefore bounds the changes an operating system crash
+     * may lose, as well as the log size replayed on the next load.
+     * 
+     * Request threads only wait for the brief copy of the data to be saved,
+     * never for the data file to be written.
+     * 
+     * @param period the time between the end of a flush and the start of the next
+     * @param unit the unit of the period
+     */
+    public void startPeriodicFlush(long period, TimeUnit unit) {
+        synchronized (flusherLock) {
+            stopPeriodicFlush();
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ContactManager flush " + filePathName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushIfChanged, period, period, unit);
+        }
+    }
+
+    /**
+     * Flushes only if anything changed since the data file was last saved,
+     * as the periodic flush does.
+     */
+    public void flushIfChanged() {
+        if ( changeCount.get() != savedChangeCount ) flush();
+    }
+
+    /**
+     * Stops flushing in the background, if started, waiting for a flush under way to complete.
+     */
+    public void stopPeriodicFlush() {
+        synchronized (flusherLock) {
+            if ( flusher == null ) return;
+            flusher.shutdown();
             try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
+                flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+    }
+
+    // ***************************************************************************** //
+    // *                                  CLOSING                                  * //
+    // ***************************************************************************** //
+
+    /**
+     * Stops the periodic flush, if started, closes the log once all changes
+     * queued to it are written, and no longer flushes at exit.
+     * 
+     * Changes not yet saved stay in the log, and are replayed by the next
+     * contact manager loading the same data file. No change is to be made,
+     * nor flush called, once closed.
+     */
+    @Override
+    public void close() {
+        stopPeriodicFlush();
+        synchronized (saveLock) {
+            if ( shutdownHook != null ) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // Already shutting down, the hook runs all the same.
+                }
+                shutdownHook = null;
+            }
+            if ( mutationLog != null ) {
+                try {
+                    mutationLog.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Loads all data and prepares the log, shared by all constructors.
+     */
+    private void initialise() {
+        this.contactIndex = new IntHashMap<Contact>();
+        this.nameIndex = new TrigramIndex();
+        this.meetingIndex = new IntHashMap<Meeting>();
+        this.meetingsByDate = new TreeMap<MeetingKey, Meeting>();
+        this.futureMeetingsByContact = new IntHashMap<IntervalTree>();
+        this.pastMeetingsByContact = new IntHashMap<IntervalTree>();
+        this.meetingWheel = new TimingWheel(MEETING_WHEEL_TICK, MEETING_WHEEL_BUCKETS, clock.millis());
+
+        // load all data if any, or create a new file to save data into.
+        try {
+            loadData();
+        } catch (ParseException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Open the log, only once loaded, so that replayed changes are not logged twice.
+        try {
+            mutationLog = new MutationLog(filePathName + LOG_FILE_SUFFIX);
+
+            // Replayed changes are not in the data file yet.
+            if ( mutationLog.size() > 0 || new File(filePathName + ROTATED_LOG_FILE_SUFFIX).exists() ) {
+                changeCount.incrementAndGet();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Add a shutdown hook to call flush() before exiting the application.
+        this.addShutdownHook();
+    }
+
+    /**
+     * Appends a record to the log, and folds the log into the data file once it grows too large.
+     * 
+     * With durable writes, the record is queued for the log to write and force
+     * to disk together with the records of other threads.
+     * 
+     * @param key the record key
+     * @param record the record
+     * @return completed once the record is logged, to be awaited without holding any lock
+     * @throws UncheckedIOException with durable writes, if the record cannot be logged
+     */
+    private CompletableFuture<Void> logRecord(String key, JSONObject record) {
+        // Nothing is logged while loading.
+        if ( mutationLog == null ) return CompletableFuture.completedFuture(null);
+
+        changeCount.incrementAndGet();
+        CompletableFuture<Void> logged = CompletableFuture.completedFuture(null);
+        try {
+            if ( durableWrites ) logged = mutationLog.appendDurably(key, record);
+            else mutationLog.append(key, record);
+
+            // Fold the log in the background, so that this change does not wait for a full save.
+            if ( mutationLog.size() > LOG_COMPACTION_SIZE && compacting.compareAndSet(false, true) ) {
+                ForkJoinPool.commonPool().execute(() -> {
+                    try {
+                        flush();
+                    } finally {
+                        compacting.set(false);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            // A change that must be durable is not made unless logged.
+            if ( durableWrites ) throw new UncheckedIOException(e);
+            e.printStackTrace();
+        }
+        return logged;
+    }
+
+    /**
+     * Waits for a record to be logged.
+     * 
+     * @param logged completed once the record is logged
+     * @throws UncheckedIOException if the record could not be logged
+     */
+    private void awaitLogged(CompletableFuture<Void> logged) {
+        try {
+            logged.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The change is made in memory, and saved by the next flush, but it is not durable yet.
+            if ( e.getCause() instanceof IOException ) throw new UncheckedIOException((IOException) e.getCause());
+            throw new IllegalStateException("Change not logged.", e.getCause());
+        }
+    }
+
+    /**
+     * Adds many meetings at once, shared by the batch methods.
+     * 
+     * @param contacts the contacts of each meeting
+     * @param dates the date of each meeting
+     * @param durations the duration of each meeting, or null for none
+     * @param texts the notes of each past meeting, or null to add future meetings
+     * @return the ids of the meetings added, in the given order
+     */
+    private int[] addMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<Long> durations, List<String> texts) {
+        // Check the whole batch before changing anything.
+        if ( contacts == null ) throw new NullPointerException("No contacts supplied.");
+        if ( dates == null ) throw new NullPointerException("No dates supplied.");
+        List<Set<Contact>> contactList = new ArrayList<Set<Contact>>(contacts);
+        List<Calendar> dateList        = new ArrayList<Calendar>(dates);
+        List<Long> durationList        = durations == null ? null : new ArrayList<Long>(durations);
+        List<String> textList          = texts == null ? null : new ArrayList<String>(texts);
+        if ( dateList.size() != contactList.size() ) throw new IllegalArgumentException("Not as many dates as sets of contacts.");
+        if ( durationList != null && durationList.size() != contactList.size() ) throw new IllegalArgumentException("Not as many durations as sets of contacts.");
+        if ( textList != null && textList.size() != contactList.size() ) throw new IllegalArgumentException("Not as many notes as sets of contacts.");
+
+        // Check each meeting on its own, and gather the contacts to check them only once.
+        long now = clock.millis();
+        Set<Integer> contactIds = new HashSet<Integer>();
+        for( int i = 0; i < contactList.size(); i++ ) {
+            if ( contactList.get(i) == null ) throw new NullPointerException("No contacts supplied.");
+            if ( dateList.get(i) == null ) throw new NullPointerException("No date supplied.");
+            if ( durationList != null ) {
+                if ( durationList.get(i) == null ) throw new NullPointerException("No duration supplied.");
+                if ( durationList.get(i) < 0 ) throw new IllegalArgumentException("Negative meeting duration: " + durationList.get(i));
+            }
+            if ( textList == null ) {
+                if ( dateList.get(i).getTimeInMillis() < now ) throw new IllegalArgumentException("Cannot add FutureMeeting with past date.");
+            } else {
+                if ( textList.get(i) == null ) throw new NullPointerException("No notes supplied.");
+                if ( contactList.get(i).size() == 0 ) throw new IllegalArgumentException("Empty set of contacts.");
+            }
+            for( Contact contact : contactList.get(i) ) contactIds.add(contact.getId());
+        }
+
+        int[] ids = new int[contactList.size()];
+        List<CompletableFuture<Void>> logged = new ArrayList<CompletableFuture<Void>>(ids.length);
+        long stamp = lock.writeLock();
+        try {
+            // Check all contacts exist, now that none can be added meanwhile.
+            for( int id : contactIds ) {
+                if ( !hasContact(id) ) throw new IllegalArgumentException("Unknown contact id: " + id);
+            }
+
+            // Check future meetings overlap no other, nor one before them in the batch,
+            // kept in new intervals of their own while checking, with ids not taken yet.
+            if ( textList == null && conflictPolicy == ConflictPolicy.REJECT ) {
+                IntHashMap<IntervalTree> batch = new IntHashMap<IntervalTree>();
+                for( int i = 0; i < ids.length; i++ ) {
+                    long start = dateList.get(i).getTimeInMillis();
+                    long end   = start + (durationList == null ? 0 : durationList.get(i));
+                    checkConflicts(contactList.get(i), start, end, batch);
+                    for( Contact contact : contactList.get(i) ) {
+                        IntervalTree intervals = batch.get(contact.getId());
+                        if ( intervals == null ) intervals = futureMeetingsByContact.get(contact.getId());
+                        if ( intervals == null ) intervals = IntervalTree.empty();
+                        batch.put(contact.getId(), intervals.put(new MeetingKey(start, -i), end));
+                    }
+                }
+            }
+
+            // Take a block of ids, and make room for all meetings, at once.
+            int first = meetingId.getAndAdd(ids.length) + 1;
+            ensureCapacity(0, ids.length);
+
+            for( int i = 0; i < ids.length; i++ ) {
+                Meeting meeting;
+                long duration = durationList == null ? 0 : durationList.get(i);
+                if ( textList == null ) meeting = new FutureMeetingImpl(first + i, dateList.get(i), duration, contactList.get(i));
+                else meeting = new PastMeetingImpl(first + i, dateList.get(i), contactList.get(i), textList.get(i));
+                logged.add(logRecord(MEETING_KEY, jUtils.toJSONObject(meeting)));
+                indexMeeting(meeting);
+                ids[i] = meeting.getId();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Return once all changes are logged.
+        awaitLogged(CompletableFuture.allOf(logged.toArray(new CompletableFuture<?>[logged.size()])));
+        return ids;
+    }
+
+    /**
+     * Reads from the indexes without taking the lock, reading again under
+     * the read lock if a change was made meanwhile.
+     * 
+     * A read overlapping a change may see the indexes half updated, and
+     * fail or return a wrong result. Either is discarded once the stamp
+     * shows the change, so the read must not change anything itself.
+     * 
+     * @param read the read to make
+     * @return the result of a read no change overlapped
+     */
+    private <T> T readOptimistically(Supplier<T> read) {
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            try {
+                T result = read.get();
+                if ( lock.validate(stamp) ) return result;
+            } catch (RuntimeException e) {
+                // Only a failure of a read no change overlapped is genuine.
+                if ( lock.validate(stamp) ) throw e;
+            }
+        }
+        return readLocked(read);
+    }
+
+    /**
+     * Reads from the indexes under the read lock, shared with other reads.
+     * 
+     * @param read the read to make
+     * @return the result of the read
+     */
+    private <T> T readLocked(Supplier<T> read) {
+        long stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Logs a notes change made on a known contact.
+     * 
+     * @param contact the contact whose notes changed
+     */
+    private void logContactNotes(Contact contact) {
+        CompletableFuture<Void> logged;
+        long stamp = lock.writeLock();
+        try {
+            logged = logRecord(CONTACT_NOTES_KEY, toNotesRecord(contact.getId(), contact.getNotes()));
+
+            // Keep the notes as they are now in the latest view.
+            if ( keepSnapshot() ) snapshot = snapshot.withContact(contact);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitLogged(logged);
+    }
+
+    /**
+     * Returns the log record of a notes change.
+     * 
+     * @param id the contact or meeting id
+     * @param notes the new notes
+     * @return the JSONObject record
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject toNotesRecord(int id, String notes) {
+        JSONObject jo = new JSONObject();
+        jo.put("id", id);
+        jo.put("notes", notes);
+        return jo;
+    }
+
+    /**
+     * Shutdown hook to always call flush() at exit, until closed.
+     */
+    private void addShutdownHook() {
+        // Set a ShutdownHook to call flush() at exit, kept to remove it on close.
+        shutdownHook = new Thread(
+            new Runnable() {
+                public void run() {
+                    flushIfChanged();
+                }
+            }
+        );
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Adds a contact to all contact indexes.
+     */
+    private void indexContact(Contact contact) {
+        contactIndex.put(contact.getId(), contact);
+        nameIndex.add(contact);
+
+        // Log any later notes change made on the contact.
+        if ( contact instanceof ContactImpl ) ((ContactImpl) contact).setNotesListener(this::logContactNotes);
+
+        // Keep the latest view up to date, if any was taken.
+        if ( keepSnapshot() ) snapshot = snapshot.withContact(contact);
+    }
+
+    /**
+     * Checks if a contact Id has already been added to the contact index
+     */
+    private boolean hasContact(int contactId) {
+        if ( contactId == 0 ) return false;
+
+        return contactIndex.containsKey(contactId);
+    }
+
+    /**
+     * Adds a meeting to all meeting indexes, replacing any meeting with the same id.
+     */
+    private void indexMeeting(Meeting meeting) {
+        Meeting previous = meetingIndex.put(meeting.getId(), meeting);
+
+        // Drop the previous meeting from the date ordered indexes.
+        if ( previous != null ) {
+            MeetingKey previousKey = MeetingKey.of(previous);
+            meetingsByDate.remove(previousKey);
+            IntHashMap<IntervalTree> byContact = getMeetingsByContact(previous);
+            if ( byContact != null ) {
+                for( Contact contact : previous.getContacts() ) {
+                    IntervalTree intervals = byContact.get(contact.getId());
+                    if ( intervals != null ) byContact.put(contact.getId(), intervals.remove(previousKey));
+                }
+            }
+        }
+
+        // Add the meeting to the date ordered indexes, the contacts' ones by meeting type.
+        MeetingKey key = MeetingKey.of(meeting);
+        meetingsByDate.put(key, meeting);
+        IntHashMap<IntervalTree> byContact = getMeetingsByContact(meeting);
+        if ( byContact != null ) {
+            for( Contact contact : meeting.getContacts() ) {
+                IntervalTree intervals = byContact.get(contact.getId());
+                if ( intervals == null ) intervals = IntervalTree.empty();
+                byContact.put(contact.getId(), intervals.put(meeting));
             }
         }
 
-        // Final JSONObject to save into file
-        JSONObject jFinal = new JSONObject();
-        JSONUtils jUtils = new JSONUtilsImpl();
+        // A FutureMeeting becomes a PastMeeting once its date is past.
+        if ( FutureMeeting.class.isInstance(meeting) ) meetingWheel.schedule(meeting.getId(), key.getTime());
+
+        // Keep the latest view up to date, if any was taken.
+        if ( keepSnapshot() ) snapshot = snapshot.withMeeting(meeting);
+    }
+
+    /**
+     * Returns a new view of the given snapshot, with the clock set now, noting it as the latest handed out.
+     */
+    private ContactManager handOut(ContactManagerSnapshot current) {
+        ContactManager view = current.withClock(clock);
+        snapshotView = new WeakReference<ContactManager>(view);
+        return view;
+    }
+
+    /**
+     * Checks, under the write lock, if the latest snapshot is to be kept up to
+     * date, dropping it once the latest view handed out is no longer in use.
+     */
+    private boolean keepSnapshot() {
+        if ( snapshot == null ) return false;
+        if ( snapshotView.get() != null ) return true;
+        snapshot = null;
+        return false;
+    }
+
+    /**
+     * Returns the index by contact of the given meeting's type, or null for a Meeting of neither type.
+     */
+    private IntHashMap<IntervalTree> getMeetingsByContact(Meeting meeting) {
+        if ( PastMeeting.class.isInstance(meeting) ) return pastMeetingsByContact;
+        if ( FutureMeeting.class.isInstance(meeting) ) return futureMeetingsByContact;
+        return null;
+    }
 
-        // Save all contacts into jContactsArray
-        Iterator<Contact> contactsIterator = contactList.iterator();
-        JSONArray jContactsArray = new JSONArray();
-        while( contactsIterator.hasNext() ) {
-            jContactsArray.add(jUtils.toJSONObject(contactsIterator.next()));
+    /**
+     * Returns the date ordered meeting keys of the given contact id in the given index, maybe empty.
+     */
+    private List<MeetingKey> getMeetingKeys(IntHashMap<IntervalTree> byContact, int contactId) {
+        IntervalTree intervals = byContact.get(contactId);
+        if ( intervals == null ) return Collections.emptyList();
+        return intervals.keys();
+    }
+
+    /**
+     * Returns the keys of the meetings of any of the given contacts overlapping
+     * the given time, past or future, in date order, looking up the intervals of
+     * the meetings being added by a batch first, if any.
+     * 
+     * @param contacts the contacts
+     * @param start the start of the time, in epoch milliseconds
+     * @param end the end of the time, in epoch milliseconds
+     * @param batch the intervals of the meetings being added by a batch, by Contact id, or null
+     * @return the keys of the overlapping meetings
+     */
+    private NavigableSet<MeetingKey> getConflictKeys(Set<Contact> contacts, long start, long end, IntHashMap<IntervalTree> batch) {
+        NavigableSet<MeetingKey> keys = new TreeSet<MeetingKey>();
+        for( Contact contact : contacts ) {
+            IntervalTree intervals = batch == null ? null : batch.get(contact.getId());
+            if ( intervals == null ) intervals = futureMeetingsByContact.get(contact.getId());
+            if ( intervals != null ) keys.addAll(intervals.overlapping(start, end));
+
+            // Past meetings may still be under way.
+            intervals = pastMeetingsByContact.get(contact.getId());
+            if ( intervals != null ) keys.addAll(intervals.overlapping(start, end));
         }
+        return keys;
+    }
+
+    /**
+     * Throws IllegalArgumentException if rejecting conflicts and any of the
+     * given contacts has a meeting overlapping the given time.
+     */
+    private void checkConflicts(Set<Contact> contacts, long start, long end, IntHashMap<IntervalTree> batch) {
+        if ( conflictPolicy != ConflictPolicy.REJECT ) return;
 
-        // Finalise Contacts.
-        jFinal.put(CONTACT_KEY,jContactsArray);
+        NavigableSet<MeetingKey> conflicts = getConflictKeys(contacts, start, end, batch);
+        if ( conflicts.isEmpty() ) return;
+
+        // Meetings of the same batch have no id yet.
+        int id = conflicts.first().getId();
+        throw new IllegalArgumentException(id > 0 ? "Meeting overlaps meeting id: " + id : "Meeting overlaps another meeting of the batch.");
+    }
+
+    /**
+     * Turns the FutureMeetings whose date is now past into PastMeetings,
+     * without notes, unless none can be yet.
+     * 
+     * Called before each query, so that no query ever sees a FutureMeeting
+     * set in the past. Most calls only compare the time with the next time
+     * a meeting may be past, taking no lock. Past that time, the wheel is
+     * checked under the read lock, so queries still run side by side, and
+     * the write lock is only waited for when a meeting is due. With nothing
+     * due, time is moved on only if no other query holds the lock.
+     *
+     * Must not be called holding the lock, which is not reentrant.
+     */
+    private void expireMeetings() {
+        if ( clock.millis() < meetingWheel.nextCheck() ) return;
 
-        // Save all meetings into jMeetingsArray
-        JSONArray jMeetingsArray = new JSONArray();
-        for( Meeting meeting : meetingList ) {
-            jMeetingsArray.add(jUtils.toJSONObject(meeting));
+        long stamp = lock.readLock();
+        try {
+            long now = clock.millis();
+            boolean due = meetingWheel.hasDue(now);
+
+            long writeStamp = lock.tryConvertToWriteLock(stamp);
+            if ( writeStamp != 0L ) {
+                stamp = writeStamp;
+            } else {
+                if ( !due ) return;
+                lock.unlockRead(stamp);
+                stamp = lock.writeLock();
+                now = clock.millis();
+            }
+            advanceMeetingWheel(now);
+        } finally {
+            lock.unlock(stamp);
         }
+    }
+
+    /**
+     * Moves the meeting wheel on, turning the FutureMeetings come due into
+     * PastMeetings, without notes. Called holding the write lock.
+     */
+    private void advanceMeetingWheel(long now) {
+        meetingWheel.advance(now, id -> {
+            // Skip meetings given notes, or replaced, since they were scheduled.
+            Meeting meeting = meetingIndex.get(id);
+            if ( FutureMeeting.class.isInstance(meeting) && meeting.getTimeInMillis() < now ) {
+                indexMeeting(PastMeetingImpl.of(meeting, ""));
+            }
+        });
+    }
+
+    /**
+     * Checks if a meeting Id has already been added to the meeting index
+     */
+    private boolean hasMeeting(int meetingId) {
+        if ( meetingId == 0 ) return false;
+
+        return meetingIndex.containsKey(meetingId);
+    }
+
+    /**
+     * Loads all data from the file into memory, then replays the
+     * changes logged since the file was saved.
+     * 
+     * A JSON file is streamed through a JSONRecordHandler, so only one
+     * record is held in its JSON form at any time. A binary file is
+     * streamed through BinarySnapshot.
+     * 
+     * If the file does not exists, only the log is loaded.
+     */
+    private void loadData() throws ParseException, IOException {
+        // Load the data file first.
+        loadDataFile();
 
-        // Finalise Meetings.
-        jFinal.put(MEETING_KEY,jMeetingsArray);
+        // Replay all changes logged since the data file was saved, starting with any left from a save that failed.
+        MutationLog.replay(filePathName + ROTATED_LOG_FILE_SUFFIX, this::loadRecord);
+        MutationLog.replay(filePathName + LOG_FILE_SUFFIX, this::loadRecord);
+    }
+
+    /**
+     * Loads all data from the data file into memory.
+     */
+    private void loadDataFile() throws ParseException, IOException {
+        // Create a local file handler
+        File file = new File(filePathName);
+
+        // If no file, fall back to the previous one if any, or nothing is to be loaded.
+        if ( !file.exists() ) file = new File(filePathName + BACKUP_FILE_SUFFIX);
+        if ( !file.exists() ) return;
+
+        // Binary files are told apart by their header, and decoded on all cores.
+        if ( BinarySnapshot.isBinary(file) ) {
+            BinarySnapshot.read(file, new BinarySnapshot.Listener() {
+                public void contactCount(int count) {
+                    ensureCapacity(count, 0);
+                }
+                public void meetingCount(int count) {
+                    ensureCapacity(0, count);
+                }
+                public void contact(Contact contact) {
+                    loadContact(contact);
+                }
+                public void meeting(Meeting meeting) {
+                    loadMeeting(meeting);
+                }
+            }, ForkJoinPool.commonPool());
+            return;
+        }
 
-        // Save all into file.
-        FileWriter fw = null;
+        // Prepare to load from file.
+        BufferedReader in = null;
         try {
-            fw = new FileWriter(file);
-            fw.write(jFinal.toJSONString());
-            fw.flush();
-            fw.close();
+            in = new BufferedReader(new FileReader(file));
+
+            // Convert each record into the expected object form as soon as it is read.
+            JSONRecordHandler.parse(in, this::loadRecord);
+
+            // Close Buffer if not closed yet.
+            if ( in != null ) in.close();
+
+        } catch (ParseException e) {
+            e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
-            // Ensure the file handler is closed at exception
-            if ( fw != null ) fw.close();
         }
+    }
+
+    /**
+     * Loads a single record read from file or log into memory.
+     * 
+     * Records already loaded are skipped, so replaying a log already
+     * folded into the data file changes nothing.
+     * 
+     * @param key the record key, e.g.: contact, meeting
+     * @param element the record read
+     */
+    private void loadRecord(String key, JSONObject element) {
+        // Switch for all possible expected Object keys to process data
+        // e.g.: Contact Object, Meeting Objects
+        switch (key) {
+
+            // Check if found key is a COUNT_KEY, ahead of all other records
+            case COUNT_KEY : {
+                ensureCapacity(Integer.valueOf(element.get(CONTACT_KEY).toString()),
+                        Integer.valueOf(element.get(MEETING_KEY).toString()));
+                break;
+            }
+            // Check if found key is a CONTACT_KEY
+            case CONTACT_KEY : {
+                loadContact(jUtils.toContact(element));
+                break;
+            }
+            // Check if the found key is a MEETING_KEY
+            case MEETING_KEY : {
+                String meetingType = element.get("type").toString();
+                switch (meetingType) {
+                    case TYPE_MEETING : {
+                        loadMeeting(jUtils.toMeeting(element));
+                        break;
+                    }
+                    case TYPE_PAST_MEETING : {
+                        loadMeeting(jUtils.toPastMeeting(element));
+                        break;
+                    }
+                    case TYPE_FUTURE_MEETING : {
+                        loadMeeting(jUtils.toFutureMeeting(element));
+                        break;
+                    }
+                    default : {
+                        throw new IllegalArgumentException("Meeting type not known: " + meetingType);
+                    }
+                }
+                break;
+            }
+            // Check if the found key is a CONTACT_NOTES_KEY
+            case CONTACT_NOTES_KEY : {
+                Contact c = contactIndex.get(Integer.valueOf(element.get("id").toString()));
+                if ( c != null ) c.addNotes(element.get("notes").toString());
+                break;
+            }
+            // Check if the found key is a MEETING_NOTES_KEY
+            case MEETING_NOTES_KEY : {
+                Meeting m = meetingIndex.get(Integer.valueOf(element.get("id").toString()));
+                if ( m != null ) {
+                    String notes = element.get("notes").toString();
+                    indexMeeting(PastMeetingImpl.of(m, notes));
+                }
+                break;
+            }
+            default : {
+                // If list key is defined in class and found in file but not found code to deal with it,
+                // this is an alert will tell the developer to implement this part of the code. 
+                System.out.println("'" + key + "' is not implemented.");
+            }
+        }
+    }
+
+    /**
+     * Grows the indexes so that the given number of records can be loaded without resizing.
+     * 
+     * @param contacts the number of contacts to be loaded
+     * @param meetings the number of meetings to be loaded
+     */
+    private void ensureCapacity(int contacts, int meetings) {
+        contactIndex.ensureCapacity(contactIndex.size() + contacts);
+        nameIndex.ensureCapacity(contactIndex.size() + contacts);
+        futureMeetingsByContact.ensureCapacity(contactIndex.size() + contacts);
+        pastMeetingsByContact.ensureCapacity(contactIndex.size() + contacts);
+        meetingIndex.ensureCapacity(meetingIndex.size() + meetings);
+    }
+
+    /**
+     * Loads a single contact read from file or log, unless already loaded.
+     */
+    private void loadContact(Contact contact) {
+        // Do not add multiple contacts of the same id
+        if( !hasContact(contact.getId()) ) {
+            indexContact(contact);
+            // Continue from the highest loaded id, so new contacts never replace a loaded one.
+            contactId.accumulateAndGet(contact.getId(), Math::max);
+        }
+    }
+
+    /**
+     * Loads a single meeting read from file or log, unless already loaded.
+     */
+    private void loadMeeting(Meeting meeting) {
+        // Do not add multiple meetings of the same id
+        if( !hasMeeting(meeting.getId()) ) {
+            indexMeeting(meeting);
+            meetingId.accumulateAndGet(meeting.getId(), Math::max);
+        }
+    }
 
-        // Ensure handler is closed in the end.
-        fw.close();
+    /**
+     * Saves all data from memory into file, and drops the log of the
+     * changes now in the file.
+     * 
+     * The data to save is taken, and the log rotated, at once under the
+     * read lock, so no change can be made meanwhile but queries go on: the
+     * latest snapshot if one is kept up to date, see snapshot(), or else a
+     * copy of the references to all contacts and meetings. Changes made
+     * while the file is then written go to a new log, and are kept once the
+     * rotated log is dropped.
+     * 
+     * Records are streamed in the configured format into a buffered
+     * channel on a temporary file, one at a time. Once the temporary file
+     * is forced to disk it is renamed over the data file, so the data file
+     * is never left half written. The previous data file is kept as backup.
+     * 
+     * If the file does not exists, creates one.
+     */
+    private void saveData() throws IOException {
+        synchronized (saveLock) {
+            // Take what is to be saved, and start a new log for changes made from now on.
+            long changes;
+            ContactManagerSnapshot saved;
+            List<Contact> contacts = null;
+            List<Meeting> meetings = null;
+            long stamp = lock.readLock();
+            try {
+                changes = changeCount.get();
+                saved   = snapshot;
+                if ( saved == null ) {
+                    contacts = new ArrayList<Contact>(contactIndex.values());
+                    meetings = new ArrayList<Meeting>(meetingIndex.values());
+                }
+                if ( mutationLog != null ) mutationLog.rotate(filePathName + ROTATED_LOG_FILE_SUFFIX);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            // A snapshot is never changed, so it is read once the lock is released.
+            if ( saved != null ) {
+                contacts = saved.getAllContacts();
+                meetings = saved.getAllMeetings();
+            }
+
+            // Create the local file handlers, the temporary file next to the data file so it can be renamed over it.
+            Path file = Paths.get(filePathName).toAbsolutePath();
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMP_FILE_SUFFIX);
+
+            // Save all into the temporary file.
+            FileChannel channel = null;
+            try {
+                channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                if ( format == DataFileFormat.BINARY ) {
+                    BinarySnapshot.write(channel, contacts, meetings);
+                } else {
+                    writeJSON(channel, contacts, meetings);
+                }
+
+                // Force to disk and close the file.
+                channel.force(true);
+                channel.close();
+
+                // Swap the new file in.
+                replaceDataFile(file, temp);
+
+                // All changes of the rotated log are now saved.
+                Files.deleteIfExists(Paths.get(filePathName + ROTATED_LOG_FILE_SUFFIX));
+                savedChangeCount = changes;
+            } catch (IOException e) {
+                e.printStackTrace();
+                // Ensure the file handler is closed at exception
+                if ( channel != null ) channel.close();
+            } finally {
+                // Only left behind if it was not swapped in.
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Writes the given data as JSON through a JSONRecordWriter, leaving the channel open.
+     * 
+     * @param channel the channel to write to
+     * @param contacts the contacts to write
+     * @param meetings the meetings to write
+     */
+    @SuppressWarnings("unchecked")
+    private void writeJSON(FileChannel channel, List<Contact> contacts, List<Meeting> meetings) throws IOException {
+        JSONRecordWriter out = new JSONRecordWriter(new BufferedWriter(Channels.newWriter(channel, Charset.defaultCharset().name())));
+
+        // Refer to the contacts being written, rather than to the contact index changing meanwhile.
+        IntHashMap<Contact> written = new IntHashMap<Contact>(contacts.size());
+        for( Contact contact : contacts ) written.put(contact.getId(), contact);
+        JSONUtils writer = new JSONUtilsImpl(written::get);
+
+        // Save the number of records first, so that loading can size its indexes up front.
+        JSONObject count = new JSONObject();
+        count.put(CONTACT_KEY, contacts.size());
+        count.put(MEETING_KEY, meetings.size());
+        out.startRecords(COUNT_KEY);
+        out.write(count);
+        out.endRecords();
+
+        // Save all contacts.
+        out.startRecords(CONTACT_KEY);
+        for( Contact contact : contacts ) {
+            out.write(writer.toJSONObject(contact));
+        }
+        out.endRecords();
+
+        // Save all meetings.
+        out.startRecords(MEETING_KEY);
+        for( Meeting meeting : meetings ) {
+            out.write(writer.toJSONObject(meeting));
+        }
+        out.endRecords();
+
+        // Finalise and flush to the channel.
+        out.end();
+    }
+
+    /**
+     * Replaces the data file with the given fully written file, keeping
+     * the previous data file as backup.
+     * 
+     * @param file the data file
+     * @param temp the fully written new data file
+     */
+    private void replaceDataFile(Path file, Path temp) throws IOException {
+        // Keep the previous generation as backup, linking it where possible rather than copying it.
+        Path backup = Paths.get(filePathName + BACKUP_FILE_SUFFIX);
+        if ( Files.exists(file) ) {
+            try {
+                Files.deleteIfExists(backup);
+                try {
+                    Files.createLink(backup, file);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                // A missing backup must not stop the new data from being saved.
+                e.printStackTrace();
+            }
+        }
+
+        // Rename the new file over the data file in one step where supported.
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Force the rename itself to disk. Not all platforms can open a directory, which is fine.
+        Path directory = file.getParent();
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Nothing more can be done on this platform.
+        }
     }
 }
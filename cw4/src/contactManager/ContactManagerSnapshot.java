@@ -0,0 +1,483 @@
+package contactManager;
+
+import java.time.Clock;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only, point in time view of the data of a ContactManagerImpl,
+ * see ContactManagerImpl.snapshot().
+ *
+ * All indexes are PersistentTreeMaps, so a snapshot is never changed:
+ * each change made to the contact manager creates a new snapshot sharing
+ * all unchanged parts with the previous one. Taking a snapshot only reads
+ * the latest one, and reading it takes no lock, so long reads never hold
+ * changes back and never see a change half made.
+ *
+ * Contacts are copies taken when they were added or their notes changed.
+ * Meetings are kept as given, and the meetings returned look their contacts
+ * up by id among these copies when asked for them, so notes are those at the
+ * time of the snapshot, whether read from a contact or from a meeting, and a
+ * change of notes only replaces the contact. All methods changing data throw
+ * UnsupportedOperationException, and notes added to a returned Contact are
+ * not kept.
+ *
+ * Past and future meetings are told apart by the clock of the contact
+ * manager when the snapshot was taken.
+ *
+ * @author Vasco
+ *
+ */
+public class ContactManagerSnapshot implements ContactManager {
+    /**
+     * The snapshot without any data, telling past meetings by the system clock.
+     */
+    static final ContactManagerSnapshot EMPTY = new ContactManagerSnapshot(PersistentTreeMap.empty(),
+            PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(), Clock.systemDefaultZone());
+
+    /**
+     * The Contacts indexed by Contact id
+     */
+    private final PersistentTreeMap<Integer, Contact> contacts;
+
+    /**
+     * The Meetings indexed by Meeting id
+     */
+    private final PersistentTreeMap<Integer, Meeting> meetings;
+
+    /**
+     * The Meetings ordered by date
+     */
+    private final PersistentTreeMap<MeetingKey, Meeting> meetingsByDate;
+
+    /**
+     * The Meetings of each Contact ordered by date, indexed by Contact id
+     */
+    private final PersistentTreeMap<Integer, PersistentTreeMap<MeetingKey, Meeting>> meetingsByContact;
+
+    /**
+     * The clock telling which meetings are past
+     */
+    private final Clock clock;
+
+    /**
+     * Constructor.
+     *
+     * @param contacts the Contacts indexed by Contact id
+     * @param meetings the Meetings indexed by Meeting id
+     * @param meetingsByDate the Meetings ordered by date
+     * @param meetingsByContact the Meetings of each Contact ordered by date
+     * @param clock the clock telling which meetings are past
+     */
+    private ContactManagerSnapshot(PersistentTreeMap<Integer, Contact> contacts,
+            PersistentTreeMap<Integer, Meeting> meetings,
+            PersistentTreeMap<MeetingKey, Meeting> meetingsByDate,
+            PersistentTreeMap<Integer, PersistentTreeMap<MeetingKey, Meeting>> meetingsByContact,
+            Clock clock) {
+        this.contacts          = contacts;
+        this.meetings          = meetings;
+        this.meetingsByDate    = meetingsByDate;
+        this.meetingsByContact = meetingsByContact;
+        this.clock             = clock;
+    }
+
+    // ***************************************************************************** //
+    // *                                 CHANGES                                   * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the snapshot with the given contact added, or replaced if
+     * already there, keeping a copy of the contact as it is now, which
+     * the meetings of the contact then return.
+     *
+     * @param contact the contact
+     * @return the new snapshot
+     */
+    ContactManagerSnapshot withContact(Contact contact) {
+        Contact copy = new ContactImpl(contact.getId(), contact.getName(), contact.getNotes());
+        return new ContactManagerSnapshot(contacts.put(contact.getId(), copy),
+                meetings, meetingsByDate, meetingsByContact, clock);
+    }
+
+    /**
+     * Returns the snapshot with the given meeting added, replacing any meeting
+     * with the same id.
+     *
+     * @param meeting the meeting
+     * @return the new snapshot
+     */
+    ContactManagerSnapshot withMeeting(Meeting meeting) {
+        PersistentTreeMap<MeetingKey, Meeting> byDate = meetingsByDate;
+        PersistentTreeMap<Integer, PersistentTreeMap<MeetingKey, Meeting>> byContact = meetingsByContact;
+
+        // Drop the previous meeting from the date ordered indexes.
+        Meeting previous = meetings.get(meeting.getId());
+        if ( previous != null ) {
+            MeetingKey previousKey = MeetingKey.of(previous);
+            byDate = byDate.remove(previousKey);
+            for( Contact contact : previous.getContacts() ) {
+                PersistentTreeMap<MeetingKey, Meeting> keys = byContact.get(contact.getId());
+                if ( keys != null ) byContact = byContact.put(contact.getId(), keys.remove(previousKey));
+            }
+        }
+
+        // Add the meeting to the date ordered indexes.
+        MeetingKey key = MeetingKey.of(meeting);
+        byDate = byDate.put(key, meeting);
+        for( Contact contact : meeting.getContacts() ) {
+            PersistentTreeMap<MeetingKey, Meeting> keys = byContact.get(contact.getId());
+            if ( keys == null ) keys = PersistentTreeMap.empty();
+            byContact = byContact.put(contact.getId(), keys.put(key, meeting));
+        }
+
+        return new ContactManagerSnapshot(contacts, meetings.put(meeting.getId(), meeting), byDate, byContact, clock);
+    }
+
+    /**
+     * Returns a new snapshot of the same data, telling which meetings are past by the given clock.
+     *
+     * @param clock the clock
+     * @return the new snapshot
+     */
+    ContactManagerSnapshot withClock(Clock clock) {
+        return new ContactManagerSnapshot(contacts, meetings, meetingsByDate, meetingsByContact, clock);
+    }
+
+    // ***************************************************************************** //
+    // *                                  SAVING                                   * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns all contacts, ordered by id, e.g.: to save them.
+     *
+     * @return the contacts
+     */
+    List<Contact> getAllContacts() {
+        return contacts.values();
+    }
+
+    /**
+     * Returns all meetings, ordered by id, e.g.: to save them.
+     *
+     * @return the meetings
+     */
+    List<Meeting> getAllMeetings() {
+        return meetings.values();
+    }
+
+    // ***************************************************************************** //
+    // *                             INTERFACE METHODS                             * //
+    // ***************************************************************************** //
+
+    /**
+     * Not supported, the snapshot is read-only.
+     */
+    @Override
+    public int addFutureMeeting(Set<Contact> contacts, Calendar date) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PastMeeting getPastMeeting(int id) {
+        // Get the meeting
+        Meeting meeting = getMeeting(id);
+
+        // If null, there was not meeting with that id.
+        if ( meeting == null ) return null;
+
+        // Check if date is in the future
+        if ( meeting.getTimeInMillis() > clock.millis() ) throw new IllegalArgumentException("Cannot get a PastMeeting with a future date.");
+
+        // Cast it into a PastMeeting
+        return (PastMeeting) meeting;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FutureMeeting getFutureMeeting(int id) {
+        // Get the meeting with the respective given id.
+        Meeting meeting = getMeeting(id);
+
+        // No meeting found, return null.
+        if ( meeting == null ) return null;
+
+        // Check date is not in the past, or throw exception.
+        if ( meeting.getTimeInMillis() < clock.millis() ) throw new IllegalArgumentException("Cannot get a FutureMeeting with a past date.");
+
+        return new SnapshotFutureMeeting(meetings.get(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Meeting getMeeting(int id) {
+        Meeting meeting = meetings.get(id);
+        return meeting != null ? view(meeting) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Meeting> getFutureMeetingList(Contact contact) {
+        // If no contact given, return an empty list
+        if ( contact == null ) return new LinkedList<Meeting>();
+
+        // If contact is not valid, throw exception
+        if ( !contacts.containsKey(contact.getId()) ) throw new IllegalArgumentException("Cannot find contact id: " + contact.getId());
+
+        // Go over this contact's meetings, already sorted by date, keeping the FutureMeeting types.
+        List<Meeting> finalFutureMeetingList = new LinkedList<Meeting>();
+        for( Meeting meeting : getMeetings(contact.getId()) ) {
+            if ( FutureMeeting.class.isInstance(meeting) ) finalFutureMeetingList.add(view(meeting));
+        }
+
+        return finalFutureMeetingList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Meeting> getFutureMeetingList(Calendar date) {
+        // Ensure that if date is null, an empty list is returned
+        if ( date == null ) return new LinkedList<Meeting>();
+
+        // All meetings set after given date, already sorted by date.
+        List<Meeting> finalFutureMeetingList = new LinkedList<Meeting>();
+        for( Meeting meeting : meetingsByDate.tailValues(MeetingKey.lastAt(date.getTimeInMillis()), false) ) {
+            finalFutureMeetingList.add(view(meeting));
+        }
+        return finalFutureMeetingList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PastMeeting> getPastMeetingList(Contact contact) {
+        // If no contact given, return empty list.
+        if ( contact == null ) return new LinkedList<PastMeeting>();
+
+        // If contact does not exist, throw exception
+        if ( !contacts.containsKey(contact.getId()) )
+            throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
+
+        // Go over this contact's meetings, already sorted by date, keeping the PastMeeting types.
+        List<PastMeeting> finalMeetingList = new LinkedList<PastMeeting>();
+        for( Meeting meeting : getMeetings(contact.getId()) ) {
+            if ( PastMeeting.class.isInstance(meeting) ) finalMeetingList.add((PastMeeting) view(meeting));
+        }
+
+        return finalMeetingList;
+    }
+
+    /**
+     * Not supported, the snapshot is read-only.
+     */
+    @Override
+    public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * Not supported, the snapshot is read-only.
+     */
+    @Override
+    public void addMeetingNotes(int id, String text) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * Not supported, the snapshot is read-only.
+     */
+    @Override
+    public void addNewContact(String name, String notes) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Contact> getContacts(int... ids) {
+        Set<Contact> result = new HashSet<Contact>();
+        for( int i : ids ) {
+            Contact contact = contacts.get(i);
+            if ( contact != null ) result.add(contact);
+        }
+
+        // If no result is found, must throw exception as per interface
+        if (result.size() == 0) throw new IllegalArgumentException("No contact found.");
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Goes over all contacts, as the name index is not kept in snapshots.
+     */
+    @Override
+    public Set<Contact> getContacts(String name) {
+        if ( name == null ) throw new NullPointerException("No name supplied.");
+
+        Set<Contact> result = new HashSet<Contact>();
+        for( Contact contact : contacts.values() ) {
+            if ( contact.getName().contains(name) ) result.add(contact);
+        }
+        return result;
+    }
+
+    /**
+     * Nothing to save, the snapshot is read-only.
+     */
+    @Override
+    public void flush() {
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the given meeting as returned by this snapshot, its contacts being those of this snapshot.
+     */
+    private Meeting view(Meeting meeting) {
+        if ( PastMeeting.class.isInstance(meeting) ) return new SnapshotPastMeeting((PastMeeting) meeting);
+        if ( FutureMeeting.class.isInstance(meeting) ) return new SnapshotFutureMeeting(meeting);
+        return new SnapshotMeeting(meeting);
+    }
+
+    /**
+     * Returns the meetings of the given contact id ordered by date, maybe none.
+     */
+    private List<Meeting> getMeetings(int contactId) {
+        PersistentTreeMap<MeetingKey, Meeting> keys = meetingsByContact.get(contactId);
+        if ( keys == null ) return new LinkedList<Meeting>();
+        return keys.values();
+    }
+
+    // ***************************************************************************** //
+    // *                              MEETING VIEWS                                * //
+    // ***************************************************************************** //
+
+    /**
+     * A meeting kept by the snapshot, looking its contacts up by id among the
+     * copies of the snapshot when asked for them.
+     *
+     * @author Vasco
+     *
+     */
+    private class SnapshotMeeting implements Meeting {
+        /**
+         * The meeting kept by the snapshot
+         */
+        protected final Meeting meeting;
+
+        /**
+         * Constructor.
+         *
+         * @param meeting the meeting kept by the snapshot
+         */
+        SnapshotMeeting(Meeting meeting) {
+            this.meeting = meeting;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getId() {
+            return meeting.getId();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Calendar getDate() {
+            return meeting.getDate();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getTimeInMillis() {
+            return meeting.getTimeInMillis();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getDurationInMillis() {
+            return meeting.getDurationInMillis();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Contact> getContacts() {
+            Set<Contact> copies = new HashSet<Contact>();
+            for( Contact contact : meeting.getContacts() ) {
+                Contact copy = contacts.get(contact.getId());
+                copies.add(copy != null ? copy : new ContactImpl(contact.getId(), contact.getName(), contact.getNotes()));
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * A past meeting kept by the snapshot, see SnapshotMeeting.
+     *
+     * @author Vasco
+     *
+     */
+    private class SnapshotPastMeeting extends SnapshotMeeting implements PastMeeting {
+        /**
+         * Constructor.
+         *
+         * @param meeting the past meeting kept by the snapshot
+         */
+        SnapshotPastMeeting(PastMeeting meeting) {
+            super(meeting);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getNotes() {
+            return ((PastMeeting) meeting).getNotes();
+        }
+    }
+
+    /**
+     * A future meeting kept by the snapshot, see SnapshotMeeting.
+     *
+     * @author Vasco
+     *
+     */
+    private class SnapshotFutureMeeting extends SnapshotMeeting implements FutureMeeting {
+        /**
+         * Constructor.
+         *
+         * @param meeting the meeting kept by the snapshot
+         */
+        SnapshotFutureMeeting(Meeting meeting) {
+            super(meeting);
+        }
+    }
+}
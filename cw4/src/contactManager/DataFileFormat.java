@@ -0,0 +1,22 @@
+package contactManager;
+
+/**
+ * The formats the data file can be saved in.
+ *
+ * Either format is loaded regardless of the one chosen, as the
+ * format of an existing file is told by its header.
+ *
+ * @author Vasco
+ *
+ */
+public enum DataFileFormat {
+    /**
+     * JSON text, as written by JSONUtils.
+     */
+    JSON,
+
+    /**
+     * The compact binary format written by BinarySnapshot.
+     */
+    BINARY
+}
@@ -2,6 +2,7 @@ package contactManager;
 
 import java.util.Calendar;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * A meeting to be held in the future 
@@ -16,9 +17,19 @@ public class FutureMeetingImpl implements FutureMeeting {
     private final int id;
     
     /**
-     * The calendar date for the meeting.
+     * The date for the meeting, in milliseconds since the epoch.
      */
-    private final Calendar date;
+    private final long time;
+
+    /**
+     * The time zone id of the date, or null for the default time zone.
+     */
+    private final String zoneId;
+
+    /**
+     * How long the meeting lasts, in milliseconds.
+     */
+    private final long duration;
     
     /**
      * The set of contacts present at the meeting.
@@ -33,8 +44,53 @@ public class FutureMeetingImpl implements FutureMeeting {
      * @param contacts set of people present at the meeting
      */
     public FutureMeetingImpl(int id, Calendar date, Set<Contact> contacts) {
+        this(id, date, 0, contacts);
+    }
+
+    /**
+     * Constructor, for a meeting lasting the given time.
+     * 
+     * @param id meeting id
+     * @param date meeting date
+     * @param duration how long the meeting lasts, in milliseconds
+     * @param contacts set of people present at the meeting
+     */
+    public FutureMeetingImpl(int id, Calendar date, long duration, Set<Contact> contacts) {
+        this(id, date.getTimeInMillis(), date.getTimeZone().getID(), duration, contacts);
+    }
+
+    /**
+     * Constructor, for a date in the default time zone.
+     * 
+     * @param id meeting id
+     * @param time meeting date, in milliseconds since the epoch
+     * @param contacts set of people present at the meeting
+     */
+    public FutureMeetingImpl(int id, long time, Set<Contact> contacts) {
+        this(id, time, 0, contacts);
+    }
+
+    /**
+     * Constructor, for a date in the default time zone and a meeting lasting the given time.
+     * 
+     * @param id meeting id
+     * @param time meeting date, in milliseconds since the epoch
+     * @param duration how long the meeting lasts, in milliseconds
+     * @param contacts set of people present at the meeting
+     */
+    public FutureMeetingImpl(int id, long time, long duration, Set<Contact> contacts) {
+        this(id, time, null, duration, contacts);
+    }
+
+    /**
+     * Constructor, for a date in the time zone of the given id, or the default one if null.
+     */
+    private FutureMeetingImpl(int id, long time, String zoneId, long duration, Set<Contact> contacts) {
+        if ( duration < 0 ) throw new IllegalArgumentException("Negative meeting duration: " + duration);
         this.id = id;
-        this.date = date;
+        this.time = time;
+        this.zoneId = zoneId;
+        this.duration = duration;
         this.contacts = contacts;
     }
 
@@ -51,9 +107,27 @@ public class FutureMeetingImpl implements FutureMeeting {
      */
     @Override
     public Calendar getDate() {
+        Calendar date = zoneId == null ? Calendar.getInstance() : Calendar.getInstance(TimeZone.getTimeZone(zoneId));
+        date.setTimeInMillis(time);
         return date;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTimeInMillis() {
+        return time;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDurationInMillis() {
+        return duration;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -61,4 +135,13 @@ public class FutureMeetingImpl implements FutureMeeting {
     public Set<Contact> getContacts() {
         return contacts;
     }
+
+    /**
+     * Returns the time zone id of the date, or null for the default time zone.
+     *
+     * @return the time zone id
+     */
+    String getZoneId() {
+        return zoneId;
+    }
 }
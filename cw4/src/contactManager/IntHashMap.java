@@ -0,0 +1,300 @@
+package contactManager;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map keyed by primitive int values.
+ *
+ * Used as the primary id index for Contacts and Meetings, so that id lookups
+ * take constant time without boxing every key into an Integer.
+ *
+ * Keys are kept in an open addressing table with linear probing. Null values
+ * are not allowed, as an empty value marks a free slot.
+ *
+ * @author Vasco
+ *
+ * @param <V> the type of the mapped values
+ */
+public class IntHashMap<V> {
+    /**
+     * The default table capacity, must be a power of two.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The maximum fill ratio before the table grows.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * The table of keys.
+     */
+    private int[] keys;
+
+    /**
+     * The table of values, a null value marks a free slot.
+     */
+    private Object[] values;
+
+    /**
+     * The number of mappings in the table.
+     */
+    private int size;
+
+    /**
+     * The number of mappings allowed before the table grows.
+     */
+    private int threshold;
+
+    /**
+     * Default constructor.
+     */
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor presized to hold the expected number of mappings.
+     *
+     * @param expectedSize the number of mappings expected
+     */
+    public IntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value mapped to the given key, or null if there is none.
+     *
+     * @param key the key to look for
+     * @return the mapped value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        for( int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask ) {
+            if ( keys[i] == key ) return (V) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the given key is mapped.
+     *
+     * @param key the key to look for
+     * @return true if there is a value for this key
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given value to the given key, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value, cannot be null
+     * @return the previous value for this key, or null if there was none
+     * @throws NullPointerException if value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if ( value == null ) throw new NullPointerException("Cannot map a null value.");
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for( ; values[i] != null; i = (i + 1) & mask ) {
+            if ( keys[i] == key ) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+
+        // Key not found, take the free slot.
+        keys[i]   = key;
+        values[i] = value;
+        if ( ++size > threshold ) resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the given key.
+     *
+     * @param key the key to be removed
+     * @return the removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        for( int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask ) {
+            if ( keys[i] == key ) {
+                V previous = (V) values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Grows the table so it can hold the given number of mappings without resizing.
+     *
+     * @param expectedSize the number of mappings expected
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if ( capacity > keys.length ) resize(capacity);
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no mappings.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a view of all mapped values, in no particular order.
+     *
+     * @return the mapped values
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Spreads the key bits so that sequential ids do not cluster.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the power of two table size able to hold the expected mappings.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while( capacity * LOAD_FACTOR < expectedSize ) capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Allocates new empty tables of the given capacity.
+     */
+    private void allocate(int capacity) {
+        keys      = new int[capacity];
+        values    = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Re-hashes all mappings into tables of the given capacity.
+     */
+    private void resize(int capacity) {
+        int[] oldKeys      = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for( int j = 0; j < oldKeys.length; j++ ) {
+            if ( oldValues[j] == null ) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while( values[i] != null ) i = (i + 1) & mask;
+            keys[i]   = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Frees the given slot, moving back any following entries of the
+     * same probe sequence so that no lookup is cut short.
+     */
+    private void shiftBack(int free) {
+        int mask = keys.length - 1;
+        int i = free;
+        while( true ) {
+            i = (i + 1) & mask;
+            if ( values[i] == null ) break;
+
+            // Only move entries whose home slot is not between the free slot and i.
+            int home = hash(keys[i]) & mask;
+            boolean movable = free <= i ? (home <= free || home > i) : (home <= free && home > i);
+            if ( movable ) {
+                keys[free]   = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = null;
+    }
+
+    /**
+     * Iterator over the occupied value slots.
+     */
+    private class ValueIterator implements Iterator<V> {
+        /**
+         * The next slot to be returned.
+         */
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V next() {
+            if ( !hasNext() ) throw new NoSuchElementException();
+            V value = (V) values[next];
+            next = advance(next + 1);
+            return value;
+        }
+
+        /**
+         * Returns the first occupied slot from the given one.
+         */
+        private int advance(int from) {
+            while( from < values.length && values[from] == null ) from++;
+            return from;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package contactManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An immutable set of meeting time intervals, ordered by start, which
+ * finds the intervals overlapping a given one, changed by creating a new set.
+ *
+ * Each interval is the meeting key, giving its start, and the time the
+ * meeting ends. An interval takes up the times from its start up to, but
+ * not including, its end, and at least its start: a meeting without a
+ * duration still takes up the millisecond it starts at.
+ *
+ * The set is a balanced (AVL) binary tree ordered by meeting key, each node
+ * also holding the latest end in its subtree. Finding the k intervals
+ * overlapping another only walks down the subtrees which may hold one, in
+ * O(log n + k). As with PersistentTreeMap, a change only copies the nodes
+ * on the path down to the changed key, and shares all others.
+ *
+ * @author Vasco
+ *
+ */
+public final class IntervalTree {
+    /**
+     * The empty set.
+     */
+    private static final IntervalTree EMPTY = new IntervalTree(null);
+
+    /**
+     * The root node, or null if the set is empty.
+     */
+    private final Node root;
+
+    /**
+     * Constructor.
+     *
+     * @param root the root node, or null for an empty set
+     */
+    private IntervalTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty set.
+     *
+     * @return the empty set
+     */
+    public static IntervalTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the number of intervals.
+     *
+     * @return the number of intervals
+     */
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * Checks if there are no intervals.
+     *
+     * @return true if there are no intervals
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the set with the interval of the given meeting added,
+     * replacing any interval with the same key.
+     *
+     * @param key the meeting key, giving the start of the interval
+     * @param end the time the meeting ends, in epoch milliseconds
+     * @return the new set
+     */
+    public IntervalTree put(MeetingKey key, long end) {
+        return new IntervalTree(put(root, key, Math.max(end, key.getTime() + 1)));
+    }
+
+    /**
+     * Returns the set with the interval of the given meeting added.
+     *
+     * @param meeting the meeting
+     * @return the new set
+     */
+    public IntervalTree put(Meeting meeting) {
+        MeetingKey key = MeetingKey.of(meeting);
+        return put(key, key.getTime() + meeting.getDurationInMillis());
+    }
+
+    /**
+     * Returns the set without the interval of the given key.
+     *
+     * @param key the meeting key
+     * @return the new set, or this set if it had no interval for the key
+     */
+    public IntervalTree remove(MeetingKey key) {
+        Node changed = remove(root, key);
+        return changed == root ? this : new IntervalTree(changed);
+    }
+
+    /**
+     * Returns the keys of all intervals, in key order.
+     *
+     * @return the keys
+     */
+    public List<MeetingKey> keys() {
+        List<MeetingKey> keys = new ArrayList<MeetingKey>(size());
+        collect(root, keys);
+        return keys;
+    }
+
+    /**
+     * Returns the keys of the intervals overlapping the given one, in key order.
+     *
+     * @param start the start of the interval, in epoch milliseconds
+     * @param end the end of the interval, in epoch milliseconds
+     * @return the keys
+     */
+    public List<MeetingKey> overlapping(long start, long end) {
+        List<MeetingKey> keys = new ArrayList<MeetingKey>();
+        overlapping(root, start, Math.max(end, start + 1), keys);
+        return keys;
+    }
+
+    /**
+     * Returns a cursor over the intervals ending after the given time, in key
+     * order, e.g.: to merge the intervals of many sets from that time on.
+     *
+     * Intervals are found one at a time, as the cursor moves on, and subtrees
+     * ending by the given time are skipped, so reading the first k intervals
+     * costs about O(log n + k).
+     *
+     * @param from the time in epoch milliseconds
+     * @return the cursor, before the first interval
+     */
+    public Cursor cursor(long from) {
+        return new Cursor(root, from);
+    }
+
+    /**
+     * Moves over the intervals of a set ending after a given time, in key order.
+     */
+    public static final class Cursor {
+        /**
+         * The nodes whose interval and right subtree are still to be visited, next one first.
+         */
+        private final Deque<Node> stack = new ArrayDeque<Node>();
+
+        /**
+         * The time intervals must end after
+         */
+        private final long from;
+
+        /**
+         * The node of the current interval, or null before the first one
+         */
+        private Node current;
+
+        /**
+         * Constructor.
+         *
+         * @param root the root node of the set
+         * @param from the time intervals must end after
+         */
+        private Cursor(Node root, long from) {
+            this.from = from;
+            pushLeft(root);
+        }
+
+        /**
+         * Moves to the next interval.
+         *
+         * @return false if there is none, true otherwise
+         */
+        public boolean next() {
+            while( !stack.isEmpty() ) {
+                Node node = stack.pop();
+                pushLeft(node.right);
+                if ( node.end > from ) {
+                    current = node;
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        /**
+         * Returns the key of the current interval.
+         *
+         * @return the meeting key
+         */
+        public MeetingKey getKey() {
+            return current.key;
+        }
+
+        /**
+         * Returns the start of the current interval.
+         *
+         * @return the start in epoch milliseconds
+         */
+        public long getStart() {
+            return current.key.getTime();
+        }
+
+        /**
+         * Returns the end of the current interval, after its start.
+         *
+         * @return the end in epoch milliseconds
+         */
+        public long getEnd() {
+            return current.end;
+        }
+
+        /**
+         * Stacks the given node and its left descendants, skipping subtrees ending by the time.
+         */
+        private void pushLeft(Node node) {
+            while( node != null && node.maxEnd > from ) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the subtree with the given interval added.
+     */
+    private static Node put(Node node, MeetingKey key, long end) {
+        if ( node == null ) return new Node(key, end, null, null);
+
+        int c = key.compareTo(node.key);
+        if ( c < 0 ) return balance(node.key, node.end, put(node.left, key, end), node.right);
+        if ( c > 0 ) return balance(node.key, node.end, node.left, put(node.right, key, end));
+        return new Node(key, end, node.left, node.right);
+    }
+
+    /**
+     * Returns the subtree without the interval of the given key.
+     */
+    private static Node remove(Node node, MeetingKey key) {
+        if ( node == null ) return null;
+
+        int c = key.compareTo(node.key);
+        if ( c < 0 ) {
+            Node left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.end, left, node.right);
+        }
+        if ( c > 0 ) {
+            Node right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.end, node.left, right);
+        }
+
+        // Replace the node by the first node of its right subtree, if it has two children.
+        if ( node.left == null ) return node.right;
+        if ( node.right == null ) return node.left;
+        Node first = node.right;
+        while( first.left != null ) first = first.left;
+        return balance(first.key, first.end, node.left, removeFirst(node.right));
+    }
+
+    /**
+     * Returns the subtree without its first node.
+     */
+    private static Node removeFirst(Node node) {
+        if ( node.left == null ) return node.right;
+        return balance(node.key, node.end, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Returns a new node over the given subtrees, rotating them if their heights differ by more than one.
+     */
+    private static Node balance(MeetingKey key, long end, Node left, Node right) {
+        int difference = height(left) - height(right);
+
+        // Left heavy: rotate right, first rotating the left subtree left if it is right heavy.
+        if ( difference > 1 ) {
+            if ( height(left.left) >= height(left.right) ) {
+                return new Node(left.key, left.end, left.left, new Node(key, end, left.right, right));
+            }
+            Node middle = left.right;
+            return new Node(middle.key, middle.end,
+                    new Node(left.key, left.end, left.left, middle.left),
+                    new Node(key, end, middle.right, right));
+        }
+
+        // Right heavy: rotate left, first rotating the right subtree right if it is left heavy.
+        if ( difference < -1 ) {
+            if ( height(right.right) >= height(right.left) ) {
+                return new Node(right.key, right.end, new Node(key, end, left, right.left), right.right);
+            }
+            Node middle = right.left;
+            return new Node(middle.key, middle.end,
+                    new Node(key, end, left, middle.left),
+                    new Node(right.key, right.end, middle.right, right.right));
+        }
+
+        return new Node(key, end, left, right);
+    }
+
+    /**
+     * Adds the keys of the subtree, in key order, to the given list.
+     */
+    private static void collect(Node node, List<MeetingKey> keys) {
+        if ( node == null ) return;
+        collect(node.left, keys);
+        keys.add(node.key);
+        collect(node.right, keys);
+    }
+
+    /**
+     * Adds the keys of the subtree's intervals overlapping the given one, in key order, to the given list.
+     */
+    private static void overlapping(Node node, long start, long end, List<MeetingKey> keys) {
+        // No interval of the subtree ends after the start.
+        if ( node == null || node.maxEnd <= start ) return;
+
+        overlapping(node.left, start, end, keys);
+
+        // Intervals from this one on start at the end or later.
+        if ( node.key.getTime() >= end ) return;
+
+        if ( node.end > start ) keys.add(node.key);
+        overlapping(node.right, start, end, keys);
+    }
+
+    /**
+     * Returns the height of a subtree, 0 if empty.
+     */
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * A tree node, never changed once created.
+     */
+    private static final class Node {
+        /**
+         * The meeting key, giving the start of the interval.
+         */
+        final MeetingKey key;
+
+        /**
+         * The end of the interval.
+         */
+        final long end;
+
+        /**
+         * The latest end of the intervals in the subtree under this node, this node included.
+         */
+        final long maxEnd;
+
+        /**
+         * The subtree of keys before this one, or null.
+         */
+        final Node left;
+
+        /**
+         * The subtree of keys after this one, or null.
+         */
+        final Node right;
+
+        /**
+         * The height of the subtree under this node, this node included.
+         */
+        final int height;
+
+        /**
+         * The number of nodes in the subtree under this node, this node included.
+         */
+        final int size;
+
+        /**
+         * Constructor.
+         *
+         * @param key the meeting key
+         * @param end the end of the interval
+         * @param left the subtree of keys before this one, or null
+         * @param right the subtree of keys after this one, or null
+         */
+        Node(MeetingKey key, long end, Node left, Node right) {
+            this.key    = key;
+            this.end    = end;
+            this.left   = left;
+            this.right  = right;
+            this.maxEnd = Math.max(end, Math.max(left == null ? Long.MIN_VALUE : left.maxEnd, right == null ? Long.MIN_VALUE : right.maxEnd));
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size   = (left == null ? 0 : left.size) + (right == null ? 0 : right.size) + 1;
+        }
+    }
+}
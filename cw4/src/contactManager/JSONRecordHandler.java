@@ -0,0 +1,341 @@
+package contactManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Streaming loader for the data file.
+ *
+ * The data file holds a JSON object per line, mapping a record key
+ * (e.g.: contact, meeting) to an array of records. This handler is fed
+ * the parser events straight from the file and only builds one record
+ * at a time, handing each to a RecordListener as soon as it is complete.
+ * The whole file is never held in memory.
+ *
+ * Older files hold each array as a JSON string instead of an array,
+ * these are parsed from the string in the same way.
+ *
+ * @author Vasco
+ *
+ */
+public class JSONRecordHandler implements ContentHandler {
+    /**
+     * Receives each record as soon as it has been read.
+     */
+    public interface RecordListener {
+        /**
+         * Called for each record read.
+         *
+         * @param key the record key, e.g.: contact, meeting
+         * @param record the record read
+         */
+        void record(String key, JSONObject record);
+    }
+
+    /**
+     * The nesting depth of records in a data file line: line object, record array, record.
+     */
+    private static final int LINE_RECORD_DEPTH = 3;
+
+    /**
+     * The nesting depth of records in an array held as a string: record array, record.
+     */
+    private static final int STRING_RECORD_DEPTH = 2;
+
+    /**
+     * The listener to hand records to.
+     */
+    private final RecordListener listener;
+
+    /**
+     * The nesting depth at which objects are records.
+     */
+    private final int recordDepth;
+
+    /**
+     * The key of the records being read.
+     */
+    private String recordKey;
+
+    /**
+     * The current nesting depth.
+     */
+    private int depth;
+
+    /**
+     * The objects and arrays of the record being built, innermost on top.
+     */
+    private final Deque<Object> values = new ArrayDeque<Object>();
+
+    /**
+     * The entry keys of the record objects being built, innermost on top.
+     */
+    private final Deque<String> keys = new ArrayDeque<String>();
+
+    /**
+     * Constructor.
+     *
+     * @param listener the listener to hand records to
+     */
+    public JSONRecordHandler(RecordListener listener) {
+        this(listener, null, LINE_RECORD_DEPTH);
+    }
+
+    /**
+     * Constructor for records of a known key, found at the given depth.
+     */
+    private JSONRecordHandler(RecordListener listener, String recordKey, int recordDepth) {
+        this.listener    = listener;
+        this.recordKey   = recordKey;
+        this.recordDepth = recordDepth;
+    }
+
+    /**
+     * Reads all lines of the given reader, handing each record to the listener.
+     *
+     * @param in the reader to read from
+     * @param listener the listener to hand records to
+     * @throws ParseException on malformed JSON
+     * @throws IOException on read failure
+     */
+    public static void parse(BufferedReader in, RecordListener listener) throws ParseException, IOException {
+        parse(in, listener, false);
+    }
+
+    /**
+     * Reads all lines of the given reader, handing each record to the listener,
+     * optionally skipping lines that are not well formed.
+     *
+     * Skipping is meant for files appended to line by line, where a crash
+     * can leave a line cut short.
+     *
+     * @param in the reader to read from
+     * @param listener the listener to hand records to
+     * @param skipMalformed true to skip malformed lines, false to fail on them
+     * @throws ParseException on malformed JSON, unless skipped
+     * @throws IOException on read failure
+     */
+    public static void parse(BufferedReader in, RecordListener listener, boolean skipMalformed)
+            throws ParseException, IOException {
+        JSONParser parser = new JSONParser();
+        JSONRecordHandler handler = new JSONRecordHandler(listener);
+        while( true ) {
+            // Skip blank lines, and stop at the end of the file.
+            in.mark(1);
+            int c = in.read();
+            if ( c == -1 ) return;
+            if ( c == '\n' || c == '\r' ) continue;
+            in.reset();
+
+            LineReader line = new LineReader(in);
+            try {
+                parser.parse(line, handler);
+            } catch (ParseException e) {
+                if ( !skipMalformed ) throw e;
+                // Drop the rest of the malformed line and carry on with the next one.
+                line.skipLine();
+            }
+        }
+    }
+
+    // ***************************************************************************** //
+    // *                          CONTENT HANDLER METHODS                          * //
+    // ***************************************************************************** //
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startJSON() {
+        depth = 0;
+        values.clear();
+        keys.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endJSON() {
+        // Nothing left to do, every record was handed over when complete.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean startObject() {
+        depth++;
+        if ( depth >= recordDepth ) values.push(new JSONObject());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean endObject() {
+        if ( depth >= recordDepth ) {
+            JSONObject object = (JSONObject) values.pop();
+            if ( depth == recordDepth ) listener.record(recordKey, object);
+            else addValue(object);
+        }
+        depth--;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean startObjectEntry(String key) {
+        if ( depth >= recordDepth ) keys.push(key);
+        // Entries of the line object name the records in their value.
+        else if ( depth == 1 && recordDepth == LINE_RECORD_DEPTH ) recordKey = key;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean endObjectEntry() {
+        if ( depth >= recordDepth ) keys.pop();
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean startArray() {
+        depth++;
+        if ( depth >= recordDepth ) values.push(new JSONArray());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean endArray() {
+        if ( depth >= recordDepth ) {
+            JSONArray array = (JSONArray) values.pop();
+            if ( depth > recordDepth ) addValue(array);
+        }
+        depth--;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean primitive(Object value) throws ParseException, IOException {
+        if ( depth >= recordDepth ) {
+            addValue(value);
+        }
+        else if ( depth == 1 && recordDepth == LINE_RECORD_DEPTH && value instanceof String ) {
+            // Older files hold the record array as a string, read the records from it.
+            new JSONParser().parse(new StringReader((String) value),
+                    new JSONRecordHandler(listener, recordKey, STRING_RECORD_DEPTH));
+        }
+        return true;
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Adds a value to the innermost object or array being built.
+     */
+    @SuppressWarnings("unchecked")
+    private void addValue(Object value) {
+        Object container = values.peek();
+        if ( container instanceof JSONObject ) ((JSONObject) container).put(keys.peek(), value);
+        else ((JSONArray) container).add(value);
+    }
+
+    /**
+     * Reader over a single line of the underlying reader, ending at the line break.
+     *
+     * JSON strings never hold a raw line break, so each line is parsed on its own
+     * without first being read into a String.
+     */
+    private static class LineReader extends Reader {
+        /**
+         * The underlying reader.
+         */
+        private final BufferedReader in;
+
+        /**
+         * Set once the line break or the end of the underlying reader was reached.
+         */
+        private boolean endOfLine;
+
+        /**
+         * Constructor.
+         *
+         * @param in the underlying reader
+         */
+        LineReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if ( endOfLine ) return -1;
+
+            // Read ahead as much as asked for, then step back to just after the line break if found.
+            in.mark(length);
+            int count = in.read(buffer, offset, length);
+            if ( count == -1 ) {
+                endOfLine = true;
+                return -1;
+            }
+            for( int i = 0; i < count; i++ ) {
+                if ( buffer[offset + i] == '\n' ) {
+                    in.reset();
+                    in.skip(i + 1);
+                    endOfLine = true;
+                    return i == 0 ? -1 : i;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Skips whatever is left of the line.
+         *
+         * @throws IOException on read failure
+         */
+        void skipLine() throws IOException {
+            char[] buffer = new char[1024];
+            while( read(buffer, 0, buffer.length) != -1 ) {
+                // Keep reading until the line break.
+            }
+        }
+
+        /**
+         * Leaves the underlying reader open for the next line.
+         */
+        @Override
+        public void close() {
+            endOfLine = true;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package contactManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Streaming writer for the data file.
+ *
+ * Writes the same layout JSONRecordHandler reads: a JSON object mapping
+ * each record key (e.g.: contact, meeting) to an array of records. Each
+ * record is written out as soon as it is given, so the file content is
+ * never built up in memory.
+ *
+ * @author Vasco
+ *
+ */
+public class JSONRecordWriter implements Closeable {
+    /**
+     * The writer to write to.
+     */
+    private final Writer out;
+
+    /**
+     * Set when no record key was written yet.
+     */
+    private boolean firstKey = true;
+
+    /**
+     * Set when no record was written yet for the current key.
+     */
+    private boolean firstRecord;
+
+    /**
+     * Set once the data was ended.
+     */
+    private boolean ended;
+
+    /**
+     * Constructor.
+     *
+     * @param out the writer to write to, preferably buffered
+     * @throws IOException on write failure
+     */
+    public JSONRecordWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write('{');
+    }
+
+    /**
+     * Starts the array of records for the given key.
+     *
+     * @param key the record key, e.g.: contact, meeting
+     * @throws IOException on write failure
+     */
+    public void startRecords(String key) throws IOException {
+        if ( !firstKey ) out.write(',');
+        firstKey    = false;
+        firstRecord = true;
+
+        out.write('"');
+        out.write(JSONValue.escape(key));
+        out.write("\":[");
+    }
+
+    /**
+     * Writes a record into the current array.
+     *
+     * @param record the record to be written
+     * @throws IOException on write failure
+     */
+    public void write(JSONObject record) throws IOException {
+        if ( !firstRecord ) out.write(',');
+        firstRecord = false;
+        record.writeJSONString(out);
+    }
+
+    /**
+     * Ends the current array of records.
+     *
+     * @throws IOException on write failure
+     */
+    public void endRecords() throws IOException {
+        out.write(']');
+    }
+
+    /**
+     * Ends the data and flushes it to the underlying writer, leaving it open.
+     *
+     * @throws IOException on write failure
+     */
+    public void end() throws IOException {
+        if ( ended ) return;
+        ended = true;
+        out.write('}');
+        out.flush();
+    }
+
+    /**
+     * Ends the data if not ended yet, and closes the underlying writer.
+     *
+     * @throws IOException on write failure
+     */
+    @Override
+    public void close() throws IOException {
+        end();
+        out.close();
+    }
+}
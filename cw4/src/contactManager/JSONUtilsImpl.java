@@ -5,6 +5,7 @@ import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -16,6 +17,12 @@ import org.json.simple.JSONObject;
  * and JSON Objects and Meeting and vice-versa conversions, required
  * by the contactManager, when saving and loading to / from file.
  * 
+ * When given a contact resolver, meetings refer to the contacts it knows
+ * by id only, and those ids are resolved back to the same Contact objects
+ * when loading. Contacts it does not know are kept in full, as are all
+ * contacts when no resolver is given. Meetings holding full contacts are
+ * read either way.
+ * 
  * @author Vasco
  *
  */
@@ -35,6 +42,27 @@ public class JSONUtilsImpl implements JSONUtils {
      */
     private final String TYPE_FUTURE_MEETING = "FutureMeeting";
 
+    /**
+     * Returns the known Contact of a given id, or null if none.
+     */
+    private final IntFunction<Contact> contactResolver;
+
+    /**
+     * Default constructor, keeping all meeting contacts in full.
+     */
+    public JSONUtilsImpl() {
+        this(null);
+    }
+
+    /**
+     * Constructor referring to the contacts known to the given resolver by id.
+     * 
+     * @param contactResolver returns the known Contact of a given id, or null if none
+     */
+    public JSONUtilsImpl(IntFunction<Contact> contactResolver) {
+        this.contactResolver = contactResolver;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -70,6 +98,8 @@ public class JSONUtilsImpl implements JSONUtils {
         jo.put("type", classSimpleName);
         jo.put("id", meeting.getId());
         jo.put("date", toJSONObject(meeting.getDate()));
+        // Only meetings with a duration have one saved.
+        if ( meeting.getDurationInMillis() != 0 ) jo.put("duration", meeting.getDurationInMillis());
         if ( classSimpleName.equals(TYPE_PAST_MEETING)) {
             PastMeeting pastMeeting = (PastMeeting) meeting;
             jo.put("notes", pastMeeting.getNotes());
@@ -77,6 +107,12 @@ public class JSONUtilsImpl implements JSONUtils {
 
         JSONArray contactsJO = new JSONArray();
         for( Contact c : meeting.getContacts() ) {
+            // Refer to known contacts by id only.
+            if ( resolveContact(c.getId()) != null ) {
+                contactsJO.add(c.getId());
+                continue;
+            }
+
             JSONObject contactJO = new JSONObject();
             contactJO.put("id", c.getId());
             contactJO.put("name", c.getName().toString());
@@ -169,7 +205,7 @@ public class JSONUtilsImpl implements JSONUtils {
             String notes = jObject.get("notes").toString();
 
             try {
-                pastMeeting = new PastMeetingImpl(id,date,contacts,notes);
+                pastMeeting = new PastMeetingImpl(id,date,getDuration(jObject),contacts,notes);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -207,7 +243,7 @@ public class JSONUtilsImpl implements JSONUtils {
             // Create the FutureMeeting object to be returned.
             FutureMeeting futureMeeting = null;
             try {
-                futureMeeting = new FutureMeetingImpl(id,date,contacts);
+                futureMeeting = new FutureMeetingImpl(id,date,getDuration(jObject),contacts);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -279,16 +315,50 @@ public class JSONUtilsImpl implements JSONUtils {
      */
     private Set<Contact> getContacts(JSONObject jObject) {
         Set<Contact> contacts = new HashSet<Contact>();
-        new HashSet<Contact>();
         JSONArray jArray = (JSONArray) jObject.get("contacts");
         @SuppressWarnings("unchecked")
-        Iterator<JSONObject> i = jArray.iterator();
+        Iterator<Object> i = jArray.iterator();
         while( i.hasNext() ) {
-            JSONObject jContact = i.next();
-            Contact c = toContact(jContact);
-            contacts.add(c);
+            Object jContact = i.next();
+
+            // A contact referred to by id only must be a known one.
+            if ( !(jContact instanceof JSONObject) ) {
+                Integer id = Integer.valueOf(jContact.toString());
+                Contact c = resolveContact(id);
+                if ( c == null ) throw new IllegalArgumentException("Not a known contact id: " + id);
+                contacts.add(c);
+                continue;
+            }
+
+            // A contact kept in full, use the known one if any.
+            Contact c = toContact((JSONObject) jContact);
+            Contact known = resolveContact(c.getId());
+            contacts.add(known != null ? known : c);
         }
 
         return contacts;
     }
+
+    /**
+     * Read the duration of a meeting, 0 if none was saved.
+     * 
+     * @param jObject JSONObject
+     * @return the duration in milliseconds
+     */
+    private long getDuration(JSONObject jObject) {
+        Object duration = jObject.get("duration");
+        if ( duration == null ) return 0;
+        return Long.parseLong(duration.toString());
+    }
+
+    /**
+     * Returns the known Contact of a given id, or null if none or no resolver was given.
+     * 
+     * @param id the contact id
+     * @return the known Contact or null
+     */
+    private Contact resolveContact(int id) {
+        if ( contactResolver == null ) return null;
+        return contactResolver.apply(id);
+    }
 }
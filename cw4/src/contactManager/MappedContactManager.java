@@ -0,0 +1,520 @@
+package contactManager;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only ContactManager over a binary data file.
+ *
+ * The file is memory mapped rather than loaded, and records are decoded
+ * from the mapping, through the index section of the file, only when a
+ * query needs them. Opening is therefore quick and takes little heap
+ * whatever the file size, as the operating system pages the file in and
+ * out as needed.
+ *
+ * The file must have been saved in the binary format, see
+ * DataFileFormat.BINARY. Changes logged since it was saved are not seen.
+ * All methods changing data throw UnsupportedOperationException, and
+ * notes added to a returned Contact are not kept.
+ *
+ * @author Vasco
+ *
+ */
+public class MappedContactManager implements ContactManager {
+    /**
+     * Each mapping covers 2 to the power of this many bytes of the file.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * The number of bytes each mapping covers.
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * The mappings of the file, in file order, as a single mapping cannot exceed 2GB.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * The number of contacts.
+     */
+    private final int contactCount;
+
+    /**
+     * The file position of the contacts by id index.
+     */
+    private final long contactsById;
+
+    /**
+     * The number of meetings.
+     */
+    private final int meetingCount;
+
+    /**
+     * The file position of the meetings by id index.
+     */
+    private final long meetingsById;
+
+    /**
+     * The file position of the meetings by date index.
+     */
+    private final long meetingsByDate;
+
+    /**
+     * The file position of the strings by index index.
+     */
+    private final long stringsByIndex;
+
+    /**
+     * The number of contacts with meetings.
+     */
+    private final int postingsCount;
+
+    /**
+     * The file position of the meetings of each contact index.
+     */
+    private final long postingsByContact;
+
+    /**
+     * The file position of the meeting positions the above index points at.
+     */
+    private final long postings;
+
+    /**
+     * The clock telling which meetings are past.
+     */
+    private final Clock clock;
+
+    // ***************************************************************************** //
+    // *                                CONSTRUCTOR                                * //
+    // ***************************************************************************** //
+    /**
+     * Constructor, maps the given binary data file, telling past meetings by the system clock.
+     *
+     * @param fileName the binary data file
+     * @throws IOException on failure to map the file, or if it is not a binary data file
+     */
+    public MappedContactManager(String fileName) throws IOException {
+        this(fileName, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor, maps the given binary data file, telling past meetings by the given clock,
+     * see ContactManagerImpl.setClock.
+     *
+     * @param fileName the binary data file
+     * @param clock the clock telling which meetings are past
+     * @throws IOException on failure to map the file, or if it is not a binary data file
+     */
+    public MappedContactManager(String fileName, Clock clock) throws IOException {
+        if ( clock == null ) throw new NullPointerException("No clock supplied.");
+        this.clock = clock;
+
+        // Map the whole file. The mappings stay valid once the channel is closed.
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for( int i = 0; i < segments.length; i++ ) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+
+            // Check the header, and find the index from the trailer.
+            BinarySnapshot.readHeader(stream(0));
+            byte[] magic = new byte[BinarySnapshot.TRAILER_SIZE - 8];
+            stream(size - magic.length).readFully(magic);
+            if ( !BinarySnapshot.isMagic(magic) ) throw new IOException("No index in " + fileName + ", save it again.");
+        }
+
+        // Locate each index table, each starting with its entry count.
+        long position = getLong(segmentsSize() - BinarySnapshot.TRAILER_SIZE) + BinarySnapshot.SECTION_HEADER_SIZE;
+
+        contactCount = getInt(position);
+        contactsById = position + 4;
+        position     = contactsById + (long) contactCount * BinarySnapshot.ID_ENTRY_SIZE;
+
+        meetingCount = getInt(position);
+        meetingsById = position + 4;
+        position     = meetingsById + (long) meetingCount * BinarySnapshot.ID_ENTRY_SIZE;
+
+        meetingsByDate = position + 4;
+        position       = meetingsByDate + (long) meetingCount * BinarySnapshot.DATE_ENTRY_SIZE;
+
+        int stringCount = getInt(position);
+        stringsByIndex  = position + 4;
+        position        = stringsByIndex + (long) stringCount * BinarySnapshot.STRING_ENTRY_SIZE;
+
+        postingsCount     = getInt(position);
+        postingsByContact = position + 4;
+        position          = postingsByContact + (long) postingsCount * BinarySnapshot.POSTINGS_ENTRY_SIZE;
+
+        postings = position + 4;
+    }
+
+    // ***************************************************************************** //
+    // *                             INTERFACE METHODS                             * //
+    // ***************************************************************************** //
+
+    /**
+     * Not supported, the data is read-only.
+     */
+    @Override
+    public int addFutureMeeting(Set<Contact> contacts, Calendar date) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PastMeeting getPastMeeting(int id) {
+        // Get the meeting
+        Meeting meeting = getMeeting(id);
+
+        // If null, there was not meeting with that id.
+        if ( meeting == null ) return null;
+
+        // Check if date is in the future
+        if ( meeting.getTimeInMillis() > clock.millis() ) throw new IllegalArgumentException("Cannot get a PastMeeting with a future date.");
+
+        // Cast it into a PastMeeting
+        return (PastMeeting) meeting;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FutureMeeting getFutureMeeting(int id) {
+        // Get the meeting with the respective given id.
+        Meeting meeting = getMeeting(id);
+
+        // No meeting found, return null.
+        if ( meeting == null ) return null;
+
+        // Check date is not in the past, or throw exception.
+        if ( meeting.getTimeInMillis() < clock.millis() ) throw new IllegalArgumentException("Cannot get a FutureMeeting with a past date.");
+
+        return new FutureMeetingImpl(id, meeting.getDate(), meeting.getDurationInMillis(), meeting.getContacts());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Meeting getMeeting(int id) {
+        long entry = findEntry(meetingsById, meetingCount, BinarySnapshot.ID_ENTRY_SIZE, id);
+        if ( entry < 0 ) return null;
+        return readMeeting(getLong(entry + 4));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Meeting> getFutureMeetingList(Contact contact) {
+        // If no contact given, return an empty list
+        if ( contact == null ) return new LinkedList<Meeting>();
+
+        // If contact is not valid, throw exception
+        if ( !hasContact(contact.getId()) ) throw new IllegalArgumentException("Cannot find contact id: " + contact.getId());
+
+        // Go over this contact's meetings, already sorted by date, keeping the FutureMeeting types.
+        List<Meeting> finalFutureMeetingList = new LinkedList<Meeting>();
+        for( Meeting meeting : getMeetings(contact.getId()) ) {
+            if ( FutureMeeting.class.isInstance(meeting) ) finalFutureMeetingList.add(meeting);
+        }
+
+        return finalFutureMeetingList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Meeting> getFutureMeetingList(Calendar date) {
+        // Ensure that if date is null, an empty list is returned
+        if ( date == null ) return new LinkedList<Meeting>();
+
+        // Find the first meeting set after the given date.
+        long time = date.getTimeInMillis();
+        int low   = 0;
+        int high  = meetingCount;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if ( getLong(meetingsByDate + (long) middle * BinarySnapshot.DATE_ENTRY_SIZE) <= time ) low = middle + 1;
+            else high = middle;
+        }
+
+        // All meetings from there on, already sorted by date.
+        List<Meeting> meetings = new LinkedList<Meeting>();
+        for( int i = low; i < meetingCount; i++ ) {
+            meetings.add(readMeeting(getLong(meetingsByDate + (long) i * BinarySnapshot.DATE_ENTRY_SIZE + 8 + 4)));
+        }
+        return meetings;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PastMeeting> getPastMeetingList(Contact contact) {
+        // If no contact given, return empty list.
+        if ( contact == null ) return new LinkedList<PastMeeting>();
+
+        // If contact does not exist, throw exception
+        if ( !hasContact(contact.getId()) )
+            throw new IllegalArgumentException("Unknown contact id: " + contact.getId());
+
+        // Go over this contact's meetings, already sorted by date, keeping the PastMeeting types.
+        List<PastMeeting> finalMeetingList = new LinkedList<PastMeeting>();
+        for( Meeting meeting : getMeetings(contact.getId()) ) {
+            if ( PastMeeting.class.isInstance(meeting) ) finalMeetingList.add((PastMeeting) meeting);
+        }
+
+        return finalMeetingList;
+    }
+
+    /**
+     * Not supported, the data is read-only.
+     */
+    @Override
+    public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * Not supported, the data is read-only.
+     */
+    @Override
+    public void addMeetingNotes(int id, String text) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * Not supported, the data is read-only.
+     */
+    @Override
+    public void addNewContact(String name, String notes) {
+        throw new UnsupportedOperationException("Read-only contact manager.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Contact> getContacts(int... ids) {
+        Set<Contact> result = new HashSet<Contact>();
+        for( int i : ids ) {
+            Contact contact = getContact(i);
+            if ( contact != null ) result.add(contact);
+        }
+
+        // If no result is found, must throw exception as per interface
+        if (result.size() == 0) throw new IllegalArgumentException("No contact found.");
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Goes over all contacts, as the name index is not part of the file.
+     */
+    @Override
+    public Set<Contact> getContacts(String name) {
+        if ( name == null ) throw new NullPointerException("No name supplied.");
+
+        Set<Contact> result = new HashSet<Contact>();
+        for( int i = 0; i < contactCount; i++ ) {
+            Contact contact = readContact(getLong(contactsById + (long) i * BinarySnapshot.ID_ENTRY_SIZE + 4));
+            if ( contact.getName().contains(name) ) result.add(contact);
+        }
+        return result;
+    }
+
+    /**
+     * Nothing to save, the data is read-only.
+     */
+    @Override
+    public void flush() {
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the contact of the given id, or null if none.
+     */
+    private Contact getContact(int id) {
+        long entry = findEntry(contactsById, contactCount, BinarySnapshot.ID_ENTRY_SIZE, id);
+        if ( entry < 0 ) return null;
+        return readContact(getLong(entry + 4));
+    }
+
+    /**
+     * Checks if a contact id is known.
+     */
+    private boolean hasContact(int id) {
+        return findEntry(contactsById, contactCount, BinarySnapshot.ID_ENTRY_SIZE, id) >= 0;
+    }
+
+    /**
+     * Returns the meetings of the given contact id in date order, maybe empty.
+     */
+    private List<Meeting> getMeetings(int contactId) {
+        List<Meeting> meetings = new LinkedList<Meeting>();
+        long entry = findEntry(postingsByContact, postingsCount, BinarySnapshot.POSTINGS_ENTRY_SIZE, contactId);
+        if ( entry < 0 ) return meetings;
+
+        long first = getLong(entry + 4);
+        int count  = getInt(entry + 4 + 8);
+        for( int i = 0; i < count; i++ ) {
+            meetings.add(readMeeting(getLong(postings + (first + i) * BinarySnapshot.POSTING_SIZE)));
+        }
+        return meetings;
+    }
+
+    /**
+     * Returns the file position of the entry of the given id, in a table
+     * of entries starting with their id and sorted by it, or -1 if none.
+     */
+    private long findEntry(long table, int count, int entrySize, int id) {
+        int low  = 0;
+        int high = count - 1;
+        while( low <= high ) {
+            int middle = (low + high) >>> 1;
+            long entry = table + (long) middle * entrySize;
+            int found  = getInt(entry);
+            if ( found < id ) low = middle + 1;
+            else if ( found > id ) high = middle - 1;
+            else return entry;
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the contact at the given file position.
+     */
+    private Contact readContact(long position) {
+        try {
+            return BinarySnapshot.readContact(stream(position), this::getString);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the meeting at the given file position, with contacts resolved to the known ones.
+     */
+    private Meeting readMeeting(long position) {
+        try {
+            return BinarySnapshot.readMeeting(stream(position), this::getString, this::getContact);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the string of the given string table index.
+     */
+    private String getString(int index) {
+        try {
+            return BinarySnapshot.readString(stream(getLong(stringsByIndex + (long) index * BinarySnapshot.STRING_ENTRY_SIZE)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the mapped size.
+     */
+    private long segmentsSize() {
+        if ( segments.length == 0 ) return 0;
+        return ((long) (segments.length - 1) << SEGMENT_SHIFT) + segments[segments.length - 1].limit();
+    }
+
+    /**
+     * Returns the byte at the given file position.
+     */
+    private byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Returns the int at the given file position.
+     */
+    private int getInt(long position) {
+        ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+        int offset = (int) (position & (SEGMENT_SIZE - 1));
+        if ( offset + 4 <= segment.limit() ) return segment.getInt(offset);
+
+        // Across two mappings.
+        int value = 0;
+        for( int i = 0; i < 4; i++ ) value = (value << 8) | (get(position + i) & 0xFF);
+        return value;
+    }
+
+    /**
+     * Returns the long at the given file position.
+     */
+    private long getLong(long position) {
+        ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+        int offset = (int) (position & (SEGMENT_SIZE - 1));
+        if ( offset + 8 <= segment.limit() ) return segment.getLong(offset);
+
+        // Across two mappings.
+        long value = 0;
+        for( int i = 0; i < 8; i++ ) value = (value << 8) | (get(position + i) & 0xFF);
+        return value;
+    }
+
+    /**
+     * Returns a stream reading the mapping from the given file position.
+     */
+    private DataInputStream stream(long position) {
+        return new DataInputStream(new MappedInputStream(position));
+    }
+
+    /**
+     * Stream reading the mapping from a file position onwards.
+     */
+    private class MappedInputStream extends InputStream {
+        /**
+         * The file position of the next byte to read.
+         */
+        private long position;
+
+        /**
+         * Constructor.
+         *
+         * @param position the file position to read from
+         */
+        MappedInputStream(long position) {
+            this.position = position;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() {
+            if ( position >= segmentsSize() ) return -1;
+            return get(position++) & 0xFF;
+        }
+    }
+}
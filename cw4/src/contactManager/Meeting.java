@@ -23,6 +23,28 @@ public interface Meeting {
 	 */ 
 	Calendar getDate();
 
+	/** 
+	 * Return the date of the meeting in milliseconds since the epoch, 
+	 * e.g.: to compare or sort meetings without building a Calendar. 
+	 * 
+	 * @return the date of the meeting in milliseconds since the epoch. 
+	 */ 
+	default long getTimeInMillis() {
+		return getDate().getTimeInMillis();
+	}
+
+	/** 
+	 * Return how long the meeting lasts, in milliseconds. 
+	 * 
+	 * A meeting without a duration takes 0 milliseconds, and is only 
+	 * taken to overlap meetings under way at the time it starts. 
+	 * 
+	 * @return how long the meeting lasts, in milliseconds. 
+	 */ 
+	default long getDurationInMillis() {
+		return 0;
+	}
+
 	/** 
 	 * Return the details of people that attended the meeting. 
 	 * 
@@ -10,13 +10,11 @@ import java.util.Comparator;
  */
 public class MeetingComparator implements Comparator<Meeting> {
     /**
-     * Compare between two Meeting dates.
+     * Compare between two Meeting dates, as milliseconds rather than Calendars.
      */
     @Override
     public int compare(Meeting o1, Meeting o2) {
-        if ( o1.getDate().after(o2.getDate()) ) return 1;
-        if ( o1.getDate().before(o2.getDate()) ) return -1;
-        return 0;
+        return Long.compare(o1.getTimeInMillis(), o2.getTimeInMillis());
     }
 
 }
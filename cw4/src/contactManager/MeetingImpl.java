@@ -2,10 +2,15 @@ package contactManager;
 
 import java.util.Calendar;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * The Meeting Implementation class.
  * 
+ * The date is kept as milliseconds since the epoch and a time zone id,
+ * rather than as a Calendar, which takes many times the memory. A new
+ * Calendar is built each time one is asked for.
+ * 
  * @author Vasco
  *
  */
@@ -16,9 +21,14 @@ public class MeetingImpl implements Meeting {
 	private final int id;
 	
 	/**
-	 * The meeting date
+	 * The meeting date, in milliseconds since the epoch
+	 */
+	private final long time;
+	
+	/**
+	 * The time zone id of the meeting date, or null for the default time zone
 	 */
-	private final Calendar date;
+	private final String zoneId;
 	
 	/**
 	 * The list of contacts present at the meeting.
@@ -34,11 +44,31 @@ public class MeetingImpl implements Meeting {
 	 * @throws Exception on empty contact set
 	 */
 	public MeetingImpl(int id, Calendar date, Set<Contact> contacts) throws Exception {
+		this(id, date.getTimeInMillis(), date.getTimeZone().getID(), contacts);
+	}
+	
+	/**
+	 * Constructor, for a date in the default time zone.
+	 * 
+	 * @param id the meeting id
+	 * @param time the meeting date, in milliseconds since the epoch
+	 * @param contacts the list of contacts present at the meeting
+	 * @throws Exception on empty contact set
+	 */
+	public MeetingImpl(int id, long time, Set<Contact> contacts) throws Exception {
+		this(id, time, null, contacts);
+	}
+	
+	/**
+	 * Constructor shared by the public ones.
+	 */
+	private MeetingImpl(int id, long time, String zoneId, Set<Contact> contacts) throws Exception {
         // Cannot allow empty contacts to be added as per interface specifications.
 		if ( contacts.isEmpty() ) throw new Exception("Cannot create Meeting with an empty contact list");
 		
 	    this.id       = id;
-	    this.date     = date;
+	    this.time     = time;
+	    this.zoneId   = zoneId;
 	    this.contacts = contacts;
 	}
 	
@@ -55,9 +85,19 @@ public class MeetingImpl implements Meeting {
 	 */
 	@Override
 	public Calendar getDate() {
+		Calendar date = zoneId == null ? Calendar.getInstance() : Calendar.getInstance(TimeZone.getTimeZone(zoneId));
+		date.setTimeInMillis(time);
 		return date;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getTimeInMillis() {
+		return time;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,101 @@
+package contactManager;
+
+/**
+ * The sort key of a Meeting in the time-ordered meeting index.
+ *
+ * Orders meetings by date in epoch milliseconds, and by meeting id
+ * between meetings set for the same time, so that no two meetings
+ * share the same key.
+ *
+ * @author Vasco
+ *
+ */
+public final class MeetingKey implements Comparable<MeetingKey> {
+    /**
+     * The meeting date in epoch milliseconds.
+     */
+    private final long time;
+
+    /**
+     * The meeting id.
+     */
+    private final int id;
+
+    /**
+     * Constructor.
+     *
+     * @param time the meeting date in epoch milliseconds
+     * @param id the meeting id
+     */
+    public MeetingKey(long time, int id) {
+        this.time = time;
+        this.id   = id;
+    }
+
+    /**
+     * Returns the key for the given meeting.
+     *
+     * @param meeting the meeting
+     * @return the meeting key
+     */
+    public static MeetingKey of(Meeting meeting) {
+        return new MeetingKey(meeting.getTimeInMillis(), meeting.getId());
+    }
+
+    /**
+     * Returns the highest key set at the given time, so that an exclusive
+     * tail view from it only holds meetings set strictly after that time.
+     *
+     * @param time the date in epoch milliseconds
+     * @return the last key at that time
+     */
+    public static MeetingKey lastAt(long time) {
+        return new MeetingKey(time, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the meeting date in epoch milliseconds.
+     *
+     * @return the meeting date
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the meeting id.
+     *
+     * @return the meeting id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Compare by date first and then by meeting id.
+     */
+    @Override
+    public int compareTo(MeetingKey other) {
+        int byTime = Long.compare(time, other.time);
+        if ( byTime != 0 ) return byTime;
+        return Integer.compare(id, other.id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if ( !(o instanceof MeetingKey) ) return false;
+        MeetingKey other = (MeetingKey) o;
+        return time == other.time && id == other.id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(time) * 31 + id;
+    }
+}
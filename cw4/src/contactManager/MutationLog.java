@@ -0,0 +1,352 @@
+package contactManager;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+
+import contactManager.JSONRecordHandler.RecordListener;
+
+/**
+ * Append-only log of the changes made since the data file was last saved.
+ *
+ * Each change is appended as a single line, in the same layout as the
+ * data file: a JSON object mapping a record key to an array holding the
+ * one record. Lines go straight to the file system as they are appended,
+ * so they survive the process being killed, and are replayed on top of
+ * the data file when loading.
+ *
+ * Records can also be appended durably: they are queued, and a single
+ * writer thread writes all records queued meanwhile at once, then forces
+ * them to disk with one call, completing the future of each record. Many
+ * threads appending at the same time thereby share the cost of forcing.
+ *
+ * Once the data file is saved again, the log is truncated. Where changes
+ * may go on while the data file is saved, the log is rotated instead, so
+ * that changes made meanwhile are kept apart from those being saved.
+ *
+ * @author Vasco
+ *
+ */
+public class MutationLog implements Closeable {
+    /**
+     * The log file.
+     */
+    private final Path path;
+
+    /**
+     * The channel on the log file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The size of the log in bytes, kept apart so that it is read without waiting for a write.
+     */
+    private volatile long size;
+
+    /**
+     * The records queued to be appended durably.
+     */
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+
+    /**
+     * The thread appending queued records, started with the first one.
+     */
+    private Thread writer;
+
+    /**
+     * Queued to stop the writer thread.
+     */
+    private static final Pending STOP = new Pending(null);
+
+    /**
+     * Constructor, opens the given log file for appending, creating it if needed.
+     *
+     * @param fileName the log file
+     * @throws IOException on failure to open the file
+     */
+    public MutationLog(String fileName) throws IOException {
+        path    = Paths.get(fileName);
+        channel = open(path);
+        size    = channel.size();
+    }
+
+    /**
+     * Replays all records of the given log file, if any, skipping lines cut short by a crash.
+     *
+     * @param fileName the log file
+     * @param listener the listener to hand records to
+     * @throws IOException on read failure
+     */
+    public static void replay(String fileName, RecordListener listener) throws IOException {
+        File file = new File(fileName);
+        if ( !file.exists() ) return;
+
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            JSONRecordHandler.parse(in, listener, true);
+        } catch (ParseException e) {
+            // Not thrown when skipping malformed lines.
+            throw new IOException(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param key the record key
+     * @param record the record
+     * @throws IOException on write failure
+     */
+    public synchronized void append(String key, JSONObject record) throws IOException {
+        write(toLine(key, record));
+    }
+
+    /**
+     * Queues a record to be appended and forced to disk by the writer thread.
+     *
+     * @param key the record key
+     * @param record the record
+     * @return completed once the record is on disk, or exceptionally if it could not be written
+     */
+    public CompletableFuture<Void> appendDurably(String key, JSONObject record) {
+        Pending pending = new Pending(toLine(key, record));
+        synchronized (this) {
+            if ( !channel.isOpen() ) {
+                pending.done.completeExceptionally(new ClosedChannelException());
+                return pending.done;
+            }
+            if ( writer == null ) {
+                writer = new Thread(this::writeQueued, "MutationLog writer " + path.getFileName());
+                writer.setDaemon(true);
+                writer.start();
+            }
+            queue.add(pending);
+        }
+        return pending.done;
+    }
+
+    /**
+     * Moves all records of the log to the given rotated log file, leaving the log empty.
+     *
+     * If the rotated log file already exists, e.g.: as the save it was rotated
+     * for failed, the records are added after the ones it holds.
+     *
+     * @param fileName the rotated log file
+     * @throws IOException on failure to move the records
+     */
+    public synchronized void rotate(String fileName) throws IOException {
+        Path rotated = Paths.get(fileName);
+
+        // Rename the log where possible, rather than copying it.
+        if ( !Files.exists(rotated) ) {
+            channel.close();
+            try {
+                Files.move(path, rotated, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(path, rotated);
+            } finally {
+                channel = open(path);
+                size    = channel.size();
+            }
+            return;
+        }
+
+        // Otherwise add the records to the rotated log, then empty the log.
+        try (FileChannel out = open(rotated)) {
+            long position = 0;
+            while( position < channel.size() ) {
+                position += channel.transferTo(position, channel.size() - position, out);
+            }
+            out.force(true);
+        }
+        truncate();
+    }
+
+    /**
+     * Returns the size of the log in bytes.
+     *
+     * @return the log size
+     * @throws IOException on failure to read the size
+     */
+    public long size() throws IOException {
+        return size;
+    }
+
+    /**
+     * Removes all records from the log.
+     *
+     * @throws IOException on write failure
+     */
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        size = 0;
+    }
+
+    /**
+     * Closes the log file, once all records queued to be appended are written.
+     *
+     * @throws IOException on failure to close
+     */
+    @Override
+    public void close() throws IOException {
+        // Stop the writer thread once it wrote all queued records.
+        Thread stopping;
+        synchronized (this) {
+            stopping = writer;
+            writer   = null;
+            if ( stopping != null ) queue.add(STOP);
+        }
+        if ( stopping != null ) {
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes queued records until stopped, each time writing all records
+     * queued so far at once and forcing them to disk with one call.
+     */
+    private void writeQueued() {
+        List<Pending> batch = new ArrayList<Pending>();
+        boolean stop = false;
+        while( !stop ) {
+            // Wait for a record, then take all others queued meanwhile.
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+            stop = batch.remove(STOP);
+            if ( batch.isEmpty() ) continue;
+
+            // Write and force them all at once.
+            IOException failure = null;
+            synchronized (this) {
+                try {
+                    StringBuilder lines = new StringBuilder();
+                    for( Pending pending : batch ) lines.append(pending.line);
+                    write(lines.toString());
+                    channel.force(false);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+
+            // Complete them all together.
+            for( Pending pending : batch ) {
+                if ( failure == null ) pending.done.complete(null);
+                else pending.done.completeExceptionally(failure);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Returns the log line of a record.
+     */
+    private static String toLine(String key, JSONObject record) {
+        try {
+            StringWriter line = new StringWriter();
+            JSONRecordWriter out = new JSONRecordWriter(line);
+            out.startRecords(key);
+            out.write(record);
+            out.endRecords();
+            out.close();
+            line.write('\n');
+            return line.toString();
+        } catch (IOException e) {
+            // Not thrown when writing to a StringWriter.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the given text at the end of the log.
+     */
+    private void write(String text) throws IOException {
+        size += write(channel, text);
+    }
+
+    /**
+     * Writes the given text at the position of the given channel, returning the number of bytes written.
+     */
+    private static int write(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(Charset.defaultCharset()));
+        while( buffer.hasRemaining() ) channel.write(buffer);
+        return buffer.limit();
+    }
+
+    /**
+     * A record queued to be appended durably.
+     */
+    private static class Pending {
+        /**
+         * The log line of the record.
+         */
+        final String line;
+
+        /**
+         * Completed once the line is on disk.
+         */
+        final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+        /**
+         * Constructor.
+         *
+         * @param line the log line of the record
+         */
+        Pending(String line) {
+            this.line = line;
+        }
+    }
+
+    /**
+     * Opens the given log file for appending, creating it if needed.
+     */
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+
+        // A crash may have cut the last line short, end it so the next line is read on its own.
+        if ( channel.size() > 0 ) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            if ( last.get(0) != '\n' ) write(channel, "\n");
+        }
+        return channel;
+    }
+}
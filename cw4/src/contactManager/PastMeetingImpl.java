@@ -2,6 +2,7 @@ package contactManager;
 
 import java.util.Calendar;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * A meeting that was held in the past. 
@@ -18,9 +19,19 @@ public class PastMeetingImpl implements PastMeeting {
     private final int id;
     
     /**
-     * The calendar date for the meeting.
+     * The date for the meeting, in milliseconds since the epoch.
      */
-    private final Calendar date;
+    private final long time;
+
+    /**
+     * The time zone id of the date, or null for the default time zone.
+     */
+    private final String zoneId;
+
+    /**
+     * How long the meeting lasted, in milliseconds.
+     */
+    private final long duration;
     
     /**
      * The set of contacts present at the meeting.
@@ -41,8 +52,56 @@ public class PastMeetingImpl implements PastMeeting {
      * @param notes from the meeting
      */
     public PastMeetingImpl(int id, Calendar date, Set<Contact> contacts, String notes) {
+        this(id, date, 0, contacts, notes);
+    }
+
+    /**
+     * Constructor, for a meeting lasting the given time.
+     * 
+     * @param id meeting id
+     * @param date meeting date
+     * @param duration how long the meeting lasted, in milliseconds
+     * @param contacts set of people present at the meeting
+     * @param notes from the meeting
+     */
+    public PastMeetingImpl(int id, Calendar date, long duration, Set<Contact> contacts, String notes) {
+        this(id, date.getTimeInMillis(), date.getTimeZone().getID(), duration, contacts, notes);
+    }
+
+    /**
+     * Constructor, for a date in the default time zone.
+     * 
+     * @param id meeting id
+     * @param time meeting date, in milliseconds since the epoch
+     * @param contacts set of people present at the meeting
+     * @param notes from the meeting
+     */
+    public PastMeetingImpl(int id, long time, Set<Contact> contacts, String notes) {
+        this(id, time, 0, contacts, notes);
+    }
+
+    /**
+     * Constructor, for a date in the default time zone and a meeting lasting the given time.
+     * 
+     * @param id meeting id
+     * @param time meeting date, in milliseconds since the epoch
+     * @param duration how long the meeting lasted, in milliseconds
+     * @param contacts set of people present at the meeting
+     * @param notes from the meeting
+     */
+    public PastMeetingImpl(int id, long time, long duration, Set<Contact> contacts, String notes) {
+        this(id, time, null, duration, contacts, notes);
+    }
+
+    /**
+     * Constructor taking the date's time zone id, null meaning the default time zone.
+     */
+    private PastMeetingImpl(int id, long time, String zoneId, long duration, Set<Contact> contacts, String notes) {
+        if ( duration < 0 ) throw new IllegalArgumentException("Negative meeting duration: " + duration);
         this.id = id;
-        this.date = date;
+        this.time = time;
+        this.zoneId = zoneId;
+        this.duration = duration;
         this.contacts = contacts;
         this.notes = notes;
 
@@ -50,6 +109,24 @@ public class PastMeetingImpl implements PastMeeting {
         if ( this.notes == null ) this.notes = "";
     }
 
+    /**
+     * Returns the given meeting as a PastMeeting with the given notes, keeping
+     * its date and time zone. Meetings of this package are copied without
+     * building a Calendar.
+     *
+     * @param meeting the meeting
+     * @param notes from the meeting
+     * @return the past meeting
+     */
+    static PastMeetingImpl of(Meeting meeting, String notes) {
+        String zoneId;
+        if ( FutureMeetingImpl.class.isInstance(meeting) ) zoneId = ((FutureMeetingImpl) meeting).getZoneId();
+        else if ( PastMeetingImpl.class.isInstance(meeting) ) zoneId = ((PastMeetingImpl) meeting).zoneId;
+        else return new PastMeetingImpl(meeting.getId(), meeting.getDate(), meeting.getDurationInMillis(), meeting.getContacts(), notes);
+
+        return new PastMeetingImpl(meeting.getId(), meeting.getTimeInMillis(), zoneId, meeting.getDurationInMillis(), meeting.getContacts(), notes);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -63,9 +140,27 @@ public class PastMeetingImpl implements PastMeeting {
      */
     @Override
     public Calendar getDate() {
+        Calendar date = zoneId == null ? Calendar.getInstance() : Calendar.getInstance(TimeZone.getTimeZone(zoneId));
+        date.setTimeInMillis(time);
         return date;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTimeInMillis() {
+        return time;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDurationInMillis() {
+        return duration;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,307 @@
+package contactManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable sorted map, changed by creating a new map.
+ *
+ * The map is a balanced (AVL) binary tree. A change only copies the nodes
+ * on the path from the root down to the changed key, O(log n) of them, and
+ * the new map shares every other node with the old one. Keeping hold of a
+ * map therefore keeps a point in time view of it, without any copy, and
+ * the view can be read from any thread while newer maps are created.
+ *
+ * @author Vasco
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PersistentTreeMap<K extends Comparable<? super K>, V> {
+    /**
+     * The empty map, shared by all key and value types.
+     */
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null);
+
+    /**
+     * The root node, or null if the map is empty.
+     */
+    private final Node<K, V> root;
+
+    /**
+     * Constructor.
+     *
+     * @param root the root node, or null for an empty map
+     */
+    private PersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Checks if there are no mappings.
+     *
+     * @return true if there are no mappings
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the value for the given key.
+     *
+     * @param key the key to look for
+     * @return the value, or null if there is none
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while( node != null ) {
+            int c = key.compareTo(node.key);
+            if ( c == 0 ) return node.value;
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if there is a value for the given key.
+     *
+     * @param key the key to look for
+     * @return true if there is a value for this key
+     */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the given mapping added, replacing any value for the same key.
+     *
+     * @param key the key
+     * @param value the value, not null
+     * @return the new map, or this map if it already held the mapping
+     */
+    public PersistentTreeMap<K, V> put(K key, V value) {
+        Node<K, V> changed = put(root, key, value);
+        return changed == root ? this : new PersistentTreeMap<K, V>(changed);
+    }
+
+    /**
+     * Returns a map without the mapping for the given key.
+     *
+     * @param key the key
+     * @return the new map, or this map if it had no mapping for the key
+     */
+    public PersistentTreeMap<K, V> remove(K key) {
+        Node<K, V> changed = remove(root, key);
+        return changed == root ? this : new PersistentTreeMap<K, V>(changed);
+    }
+
+    /**
+     * Returns all values, in key order.
+     *
+     * @return the values
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<V>(size());
+        collect(root, null, true, values);
+        return values;
+    }
+
+    /**
+     * Returns the values whose keys are after the given key, in key order.
+     *
+     * @param from the key to start from
+     * @param inclusive true to include the value of the given key itself
+     * @return the values
+     */
+    public List<V> tailValues(K from, boolean inclusive) {
+        List<V> values = new ArrayList<V>();
+        collect(root, from, inclusive, values);
+        return values;
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the subtree with the given mapping added.
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(Node<K, V> node, K key, V value) {
+        if ( node == null ) return new Node<K, V>(key, value, null, null);
+
+        int c = key.compareTo(node.key);
+        if ( c < 0 ) {
+            Node<K, V> left = put(node.left, key, value);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if ( c > 0 ) {
+            Node<K, V> right = put(node.right, key, value);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+
+        // Same key, only copied if the value changes.
+        if ( node.value == value ) return node;
+        return new Node<K, V>(key, value, node.left, node.right);
+    }
+
+    /**
+     * Returns the subtree without the mapping for the given key.
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> node, K key) {
+        if ( node == null ) return null;
+
+        int c = key.compareTo(node.key);
+        if ( c < 0 ) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if ( c > 0 ) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+
+        // Replace the node by the first node of its right subtree, if it has two children.
+        if ( node.left == null ) return node.right;
+        if ( node.right == null ) return node.left;
+        Node<K, V> first = node.right;
+        while( first.left != null ) first = first.left;
+        return balance(first.key, first.value, node.left, removeFirst(node.right));
+    }
+
+    /**
+     * Returns the subtree without its first node.
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if ( node.left == null ) return node.right;
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Returns a new node over the given subtrees, rotating them if their heights differ by more than one.
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int difference = height(left) - height(right);
+
+        // Left heavy: rotate right, first rotating the left subtree left if it is right heavy.
+        if ( difference > 1 ) {
+            if ( height(left.left) >= height(left.right) ) {
+                return new Node<K, V>(left.key, left.value, left.left, new Node<K, V>(key, value, left.right, right));
+            }
+            Node<K, V> middle = left.right;
+            return new Node<K, V>(middle.key, middle.value,
+                    new Node<K, V>(left.key, left.value, left.left, middle.left),
+                    new Node<K, V>(key, value, middle.right, right));
+        }
+
+        // Right heavy: rotate left, first rotating the right subtree right if it is left heavy.
+        if ( difference < -1 ) {
+            if ( height(right.right) >= height(right.left) ) {
+                return new Node<K, V>(right.key, right.value, new Node<K, V>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> middle = right.left;
+            return new Node<K, V>(middle.key, middle.value,
+                    new Node<K, V>(key, value, left, middle.left),
+                    new Node<K, V>(right.key, right.value, middle.right, right.right));
+        }
+
+        return new Node<K, V>(key, value, left, right);
+    }
+
+    /**
+     * Adds the values of the subtree from the given key on, in key order, to the given list.
+     */
+    private static <K extends Comparable<? super K>, V> void collect(Node<K, V> node, K from, boolean inclusive, List<V> values) {
+        if ( node == null ) return;
+
+        // Keys before this one can only be wanted if this key is after the start.
+        int c = from == null ? -1 : from.compareTo(node.key);
+        if ( c < 0 ) collect(node.left, from, inclusive, values);
+        if ( c < 0 || (c == 0 && inclusive) ) values.add(node.value);
+        collect(node.right, from, inclusive, values);
+    }
+
+    /**
+     * Returns the height of a subtree, 0 if empty.
+     */
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Returns the number of nodes of a subtree, 0 if empty.
+     */
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * A tree node, never changed once created.
+     */
+    private static final class Node<K, V> {
+        /**
+         * The key.
+         */
+        final K key;
+
+        /**
+         * The value.
+         */
+        final V value;
+
+        /**
+         * The subtree of keys before this one, or null.
+         */
+        final Node<K, V> left;
+
+        /**
+         * The subtree of keys after this one, or null.
+         */
+        final Node<K, V> right;
+
+        /**
+         * The height of the subtree under this node, this node included.
+         */
+        final int height;
+
+        /**
+         * The number of nodes in the subtree under this node, this node included.
+         */
+        final int size;
+
+        /**
+         * Constructor.
+         *
+         * @param key the key
+         * @param value the value
+         * @param left the subtree of keys before this one, or null
+         * @param right the subtree of keys after this one, or null
+         */
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key    = key;
+            this.value  = value;
+            this.left   = left;
+            this.right  = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size   = size(left) + size(right) + 1;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package contactManager;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A hashed timing wheel, telling which ids have come due as time goes on.
+ *
+ * Time is cut into ticks, and each tick hashed to one of a fixed number of
+ * buckets, so scheduling an id only appends it to a bucket. Moving time on
+ * only visits the buckets of the ticks gone by, at most once each, so each
+ * id costs O(1) to schedule and to come due, plus one visit per turn of the
+ * wheel it waits. The wheel is to turn slowly enough for most ids to come
+ * due within a turn or two.
+ *
+ * Ids come due exactly once time is past theirs, not at the end of their
+ * tick: the bucket of the current tick is checked again whenever one of
+ * its ids comes due. Ids scheduled for a time already gone by go into that
+ * bucket, so time may also go backwards, e.g.: when a clock is replaced.
+ *
+ * Not thread-safe, except for nextCheck, which can be read without a lock,
+ * and hasDue, which changes nothing, so may run in many threads at once
+ * while none schedules or advances.
+ *
+ * @author Vasco
+ *
+ */
+public class TimingWheel {
+    /**
+     * The ids of each bucket, or null while a bucket was never used
+     */
+    private final int[][] ids;
+
+    /**
+     * The times of each bucket, in epoch milliseconds, one for each id
+     */
+    private final long[][] times;
+
+    /**
+     * The number of ids in each bucket
+     */
+    private final int[] sizes;
+
+    /**
+     * The length of a tick in milliseconds
+     */
+    private final long tickMillis;
+
+    /**
+     * The latest tick visited
+     */
+    private long currentTick;
+
+    /**
+     * The time from which an id may have come due
+     */
+    private volatile long nextCheck;
+
+    /**
+     * The number of ids scheduled and not yet due
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param tickMillis the length of a tick in milliseconds
+     * @param buckets the number of buckets, a power of two
+     * @param now the current time in epoch milliseconds
+     */
+    public TimingWheel(long tickMillis, int buckets, long now) {
+        if ( tickMillis <= 0 ) throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        if ( buckets <= 0 || Integer.bitCount(buckets) != 1 ) throw new IllegalArgumentException("Buckets must be a power of two: " + buckets);
+        this.ids         = new int[buckets][];
+        this.times       = new long[buckets][];
+        this.sizes       = new int[buckets];
+        this.tickMillis  = tickMillis;
+        this.currentTick = Math.floorDiv(now, tickMillis);
+        this.nextCheck   = (currentTick + 1) * tickMillis;
+    }
+
+    /**
+     * Returns the time from which an id may have come due: until then
+     * advance has nothing to do.
+     *
+     * @return the time in epoch milliseconds
+     */
+    public long nextCheck() {
+        return nextCheck;
+    }
+
+    /**
+     * Returns the number of ids scheduled and not yet due.
+     *
+     * @return the number of ids
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an id to come due once time is past the given time. The same id
+     * may be scheduled more than once, and then comes due once for each time.
+     *
+     * @param id the id
+     * @param time the time in epoch milliseconds
+     */
+    public void schedule(int id, long time) {
+        long tick = Math.floorDiv(time, tickMillis);
+
+        // Times gone by go to the current bucket, checked on the next advance.
+        if ( tick <= currentTick ) {
+            tick = currentTick;
+            if ( time + 1 < nextCheck ) nextCheck = time + 1;
+        }
+
+        int bucket = bucket(tick);
+        int bucketSize = sizes[bucket];
+        if ( ids[bucket] == null ) {
+            ids[bucket]   = new int[4];
+            times[bucket] = new long[4];
+        } else if ( bucketSize == ids[bucket].length ) {
+            ids[bucket]   = Arrays.copyOf(ids[bucket], bucketSize * 2);
+            times[bucket] = Arrays.copyOf(times[bucket], bucketSize * 2);
+        }
+        ids[bucket][bucketSize]   = id;
+        times[bucket][bucketSize] = time;
+        sizes[bucket] = bucketSize + 1;
+        size++;
+    }
+
+    /**
+     * Returns whether advance would give any id to its consumer, changing nothing.
+     *
+     * @param now the current time in epoch milliseconds
+     * @return true if an id is due
+     */
+    public boolean hasDue(long now) {
+        long lastTick = Math.max(currentTick, Math.floorDiv(now, tickMillis));
+        long firstTick = lastTick - currentTick >= ids.length ? lastTick - ids.length + 1 : currentTick;
+        for( long tick = firstTick; tick <= lastTick; tick++ ) {
+            int bucket = bucket(tick);
+            for( int i = 0; i < sizes[bucket]; i++ ) {
+                if ( times[bucket][i] < now ) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves time on, giving each id whose time is now past to the given
+     * consumer, and dropping it from the wheel. The consumer must not schedule ids.
+     *
+     * @param now the current time in epoch milliseconds
+     * @param due the consumer of the ids come due
+     */
+    public void advance(long now, IntConsumer due) {
+        long lastTick = Math.max(currentTick, Math.floorDiv(now, tickMillis));
+
+        // Visit the buckets of the ticks gone by, each bucket once at most.
+        long firstTick = lastTick - currentTick >= ids.length ? lastTick - ids.length + 1 : currentTick;
+        for( long tick = firstTick; tick <= lastTick; tick++ ) {
+            expire(bucket(tick), now, due);
+        }
+        currentTick = lastTick;
+
+        // Ids left in the current bucket may come due before the next tick.
+        long next = (currentTick + 1) * tickMillis;
+        int bucket = bucket(currentTick);
+        for( int i = 0; i < sizes[bucket]; i++ ) {
+            next = Math.min(next, times[bucket][i] + 1);
+        }
+        nextCheck = next;
+    }
+
+    // ***************************************************************************** //
+    // *                             PRIVATE METHODS                               * //
+    // ***************************************************************************** //
+
+    /**
+     * Returns the bucket of the given tick.
+     */
+    private int bucket(long tick) {
+        return (int) (tick & (ids.length - 1));
+    }
+
+    /**
+     * Drops the ids of a bucket whose time is before now, giving them to the consumer.
+     */
+    private void expire(int bucket, long now, IntConsumer due) {
+        int[] bucketIds = ids[bucket];
+        long[] bucketTimes = times[bucket];
+        int i = 0;
+        while( i < sizes[bucket] ) {
+            if ( bucketTimes[i] < now ) {
+                int id = bucketIds[i];
+
+                // Move the last id into the free place, order does not matter.
+                int last = --sizes[bucket];
+                bucketIds[i]   = bucketIds[last];
+                bucketTimes[i] = bucketTimes[last];
+                size--;
+                due.accept(id);
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package contactManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A substring index over Contact names.
+ *
+ * Every run of three characters (trigram) found in a name points to the
+ * Contacts having it. A search only checks the Contacts listed under the
+ * rarest trigram of the searched string, instead of every known Contact.
+ * Searches shorter than a trigram fall back to checking every Contact.
+ *
+ * Results always match String.contains on the Contact name.
+ *
+ * @author Vasco
+ *
+ */
+public class TrigramIndex {
+    /**
+     * The number of characters in each indexed gram.
+     */
+    private static final int GRAM = 3;
+
+    /**
+     * The Contacts having each trigram, keyed by the packed trigram characters.
+     */
+    private final Map<Long, List<Contact>> postings = new HashMap<Long, List<Contact>>();
+
+    /**
+     * All indexed Contacts, to answer searches shorter than a trigram.
+     */
+    private final ArrayList<Contact> contacts = new ArrayList<Contact>();
+
+    /**
+     * Adds a Contact to the index.
+     *
+     * Contact names never change, so a Contact is only added once.
+     *
+     * @param contact the contact to be indexed
+     */
+    public void add(Contact contact) {
+        contacts.add(contact);
+
+        // List the contact once under each distinct trigram of its name.
+        String name = contact.getName();
+        Set<Long> seen = new HashSet<Long>();
+        for( int i = 0; i + GRAM <= name.length(); i++ ) {
+            Long gram = gram(name, i);
+            if ( !seen.add(gram) ) continue;
+
+            List<Contact> list = postings.get(gram);
+            if ( list == null ) {
+                list = new ArrayList<Contact>(1);
+                postings.put(gram, list);
+            }
+            list.add(contact);
+        }
+    }
+
+    /**
+     * Grows the index so it can hold the given number of Contacts without resizing.
+     *
+     * @param expectedSize the number of Contacts expected
+     */
+    public void ensureCapacity(int expectedSize) {
+        contacts.ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Removes all Contacts from the index.
+     */
+    public void clear() {
+        postings.clear();
+        contacts.clear();
+    }
+
+    /**
+     * Returns the Contacts whose name contains the given string.
+     *
+     * @param name the string to search for
+     * @return the contacts found, maybe empty
+     * @throws NullPointerException if name is null
+     */
+    public Set<Contact> search(String name) {
+        if ( name == null ) throw new NullPointerException("No name supplied.");
+
+        // Pick the shortest candidate list among the trigrams of the searched name.
+        List<Contact> candidates = contacts;
+        for( int i = 0; i + GRAM <= name.length(); i++ ) {
+            List<Contact> list = postings.get(gram(name, i));
+
+            // A trigram no contact has, nothing can match.
+            if ( list == null ) return new HashSet<Contact>();
+
+            if ( list.size() < candidates.size() ) candidates = list;
+        }
+
+        // Check each candidate, as holding every trigram does not mean holding the whole string.
+        Set<Contact> result = new HashSet<Contact>();
+        for( Contact contact : candidates ) {
+            if ( contact.getName().contains(name) ) result.add(contact);
+        }
+        return result;
+    }
+
+    /**
+     * Packs the trigram starting at the given position into a single key.
+     */
+    private static Long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,215 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.AsyncContactManager;
+import contactManager.Contact;
+import contactManager.ContactManagerImpl;
+
+/**
+ * Unit test to test the AsyncContactManager class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestAsyncContactManager {
+    /**
+     * The data file used by the tests.
+     */
+    private final String DATA_FILE = "src" + File.separatorChar + "unitTests" + File.separatorChar + "test_async.txt";
+
+    /**
+     * The tasks given to the executor, only run when the test says so.
+     */
+    private Queue<Runnable> tasks;
+
+    /**
+     * The contactManager the methods run on.
+     */
+    private ContactManagerImpl contactManager;
+
+    /**
+     * The contactManager to test.
+     */
+    private AsyncContactManager async;
+
+    /**
+     * Start each test with no data, and an executor running tasks on demand.
+     */
+    @Before
+    public void before() {
+        deleteFiles();
+        tasks = new LinkedList<Runnable>();
+        Executor executor = new Executor() {
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        };
+        contactManager = new ContactManagerImpl(DATA_FILE);
+        async = new AsyncContactManager(contactManager, executor);
+    }
+
+    /**
+     * Remove the data file and its companions after each test.
+     */
+    @After
+    public void after() {
+        contactManager.close();
+        deleteFiles();
+    }
+
+    /**
+     * Test that changes and reads complete once run.
+     *
+     * @throws Exception on failure of a method
+     */
+    @Test
+    public void testChangeThenRead() throws Exception {
+        CompletableFuture<Void> added = async.addNewContact("Alice", "Notes");
+        assertEquals(1, tasks.size());
+        runTasks();
+        added.get();
+
+        CompletableFuture<Set<Contact>> found = async.getContacts("Alice");
+        runTasks();
+        assertEquals(1, found.get().size());
+    }
+
+    /**
+     * Test that identical reads asked for together run once, and that
+     * each caller gets its own copy of the result.
+     *
+     * @throws Exception on failure of a read
+     */
+    @Test
+    public void testIdenticalReadsCombined() throws Exception {
+        async.addNewContact("Alice", "Notes");
+        runTasks();
+
+        CompletableFuture<Set<Contact>> first  = async.getContacts("Alice");
+        CompletableFuture<Set<Contact>> second = async.getContacts("Alice");
+        CompletableFuture<Set<Contact>> other  = async.getContacts("Bob");
+        assertEquals(2, tasks.size());
+        runTasks();
+
+        assertEquals(first.get(), second.get());
+        assertNotSame(first.get(), second.get());
+        assertTrue(other.get().isEmpty());
+    }
+
+    /**
+     * Test that a read asked for once a change completed does not join
+     * a read asked for before it, which may have started before the change.
+     *
+     * @throws Exception on failure of a method
+     */
+    @Test
+    public void testReadAfterChangeNotCombined() throws Exception {
+        CompletableFuture<Set<Contact>> before = async.getContacts("Alice");
+        CompletableFuture<Void> added = async.addNewContact("Alice", "Notes");
+
+        // Run the change only, leaving the first read waiting.
+        Runnable read = tasks.poll();
+        tasks.poll().run();
+        added.get();
+
+        // The read asked for now runs on its own.
+        CompletableFuture<Set<Contact>> after = async.getContacts("Alice");
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(1, after.get().size());
+        assertFalse(before.isDone());
+
+        read.run();
+        before.get();
+    }
+
+    /**
+     * Test that a failing read completes exceptionally, and is not joined afterwards.
+     *
+     * @throws InterruptedException if interrupted waiting for the read
+     */
+    @Test
+    public void testReadFailure() throws InterruptedException {
+        CompletableFuture<Set<Contact>> failed = async.getContacts(42);
+        runTasks();
+        try {
+            failed.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue(failed.isCompletedExceptionally());
+
+        async.getContacts(42);
+        assertEquals(1, tasks.size());
+    }
+
+    /**
+     * Test that close shuts down the pool created by the one argument constructor,
+     * once the methods already asked for have completed.
+     *
+     * @throws Exception on failure of a method
+     */
+    @Test
+    public void testCloseOwnedPool() throws Exception {
+        AsyncContactManager pooled = new AsyncContactManager(contactManager);
+        CompletableFuture<Void> added = pooled.addNewContact("Alice", "Notes");
+        pooled.close();
+        assertTrue(added.isDone());
+        added.get();
+
+        CompletableFuture<Set<Contact>> found = pooled.getContacts("Alice");
+        try {
+            found.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(found.isCompletedExceptionally());
+        assertTrue(pooled.addNewContact("Bob", "Notes").isCompletedExceptionally());
+    }
+
+    /**
+     * Test that close leaves a given executor running.
+     *
+     * @throws Exception on failure of a method
+     */
+    @Test
+    public void testCloseGivenExecutor() throws Exception {
+        async.close();
+        CompletableFuture<Void> added = async.addNewContact("Alice", "Notes");
+        runTasks();
+        added.get();
+    }
+
+    /**
+     * Runs all tasks given to the executor.
+     */
+    private void runTasks() {
+        while( !tasks.isEmpty() ) tasks.poll().run();
+    }
+
+    /**
+     * Deletes the data file and the files kept next to it.
+     */
+    private void deleteFiles() {
+        new File(DATA_FILE).delete();
+        new File(DATA_FILE + ".log").delete();
+        new File(DATA_FILE + ".bak").delete();
+    }
+}
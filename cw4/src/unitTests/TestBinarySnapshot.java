@@ -0,0 +1,238 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.BinarySnapshot;
+import contactManager.Contact;
+import contactManager.ContactImpl;
+import contactManager.FutureMeeting;
+import contactManager.FutureMeetingImpl;
+import contactManager.Meeting;
+import contactManager.PastMeeting;
+import contactManager.PastMeetingImpl;
+
+/**
+ * Unit test to test the BinarySnapshot class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestBinarySnapshot {
+    /**
+     * The data file used by the tests.
+     */
+    private final String DATA_FILE = "src" + File.separatorChar + "unitTests" + File.separatorChar + "test_snapshot.bin";
+
+    /**
+     * The contacts read back.
+     */
+    private List<Contact> contactsRead;
+
+    /**
+     * The meetings read back.
+     */
+    private List<Meeting> meetingsRead;
+
+    /**
+     * Start each test with no data file.
+     */
+    @Before
+    public void before() {
+        new File(DATA_FILE).delete();
+        contactsRead = new ArrayList<Contact>();
+        meetingsRead = new ArrayList<Meeting>();
+    }
+
+    /**
+     * Remove the data file after each test.
+     */
+    @After
+    public void after() {
+        new File(DATA_FILE).delete();
+    }
+
+    /**
+     * Test that contacts and meetings are read back as written, with
+     * meeting contacts resolved to the contacts read.
+     *
+     * @throws IOException on file failure
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        Contact alice = new ContactImpl(1, "Alice", "First notes");
+        Contact bob   = new ContactImpl(2, "Bob", "");
+        Calendar past   = new GregorianCalendar(2014, 0, 2, 10, 30);
+        Calendar future = new GregorianCalendar(2030, 5, 6, 7, 8);
+        PastMeeting pastMeeting     = new PastMeetingImpl(10, past, new HashSet<Contact>(Arrays.asList(alice, bob)), "Minutes");
+        FutureMeeting futureMeeting = new FutureMeetingImpl(11, future, Collections.singleton(bob));
+
+        write(Arrays.asList(alice, bob), Arrays.<Meeting>asList(pastMeeting, futureMeeting));
+        assertTrue(BinarySnapshot.isBinary(new File(DATA_FILE)));
+        read();
+
+        assertEquals(2, contactsRead.size());
+        assertEquals("Alice", contactsRead.get(0).getName());
+        assertEquals("First notes", contactsRead.get(0).getNotes());
+        assertEquals(2, contactsRead.get(1).getId());
+
+        assertEquals(2, meetingsRead.size());
+        PastMeeting pastRead = (PastMeeting) meetingsRead.get(0);
+        assertEquals(10, pastRead.getId());
+        assertEquals(past.getTimeInMillis(), pastRead.getDate().getTimeInMillis());
+        assertEquals("Minutes", pastRead.getNotes());
+        assertEquals(2, pastRead.getContacts().size());
+
+        Meeting futureRead = meetingsRead.get(1);
+        assertTrue(futureRead instanceof FutureMeeting);
+        assertEquals(future.getTimeInMillis(), futureRead.getDate().getTimeInMillis());
+        assertSame(contactsRead.get(1), futureRead.getContacts().iterator().next());
+    }
+
+    /**
+     * Test that meeting durations are read back, and are 0 when not given.
+     *
+     * @throws IOException on file failure
+     */
+    @Test
+    public void testDuration() throws IOException {
+        Contact alice = new ContactImpl(1, "Alice", "");
+        Calendar future = new GregorianCalendar(2030, 5, 6, 7, 8);
+        Meeting longMeeting = new FutureMeetingImpl(10, future, 5400000, Collections.singleton(alice));
+        Meeting pastMeeting = new PastMeetingImpl(11, new GregorianCalendar(2014, 0, 2), Collections.singleton(alice), "");
+
+        write(Collections.singletonList(alice), Arrays.asList(longMeeting, pastMeeting));
+        read();
+
+        assertEquals(5400000, meetingsRead.get(0).getDurationInMillis());
+        assertTrue(meetingsRead.get(0) instanceof FutureMeeting);
+        assertEquals(0, meetingsRead.get(1).getDurationInMillis());
+        assertTrue(meetingsRead.get(1) instanceof PastMeeting);
+    }
+
+    /**
+     * Test that a meeting contact not among the contacts is kept in full.
+     *
+     * @throws IOException on file failure
+     */
+    @Test
+    public void testUnknownMeetingContact() throws IOException {
+        Contact known   = new ContactImpl(1, "Known", "");
+        Contact unknown = new ContactImpl(7, "Unknown", "Only in a meeting");
+        Set<Contact> attendees = new HashSet<Contact>(Arrays.asList(known, unknown));
+        Meeting meeting = new FutureMeetingImpl(3, new GregorianCalendar(2030, 0, 1), attendees);
+
+        write(Collections.singletonList(known), Collections.singletonList(meeting));
+        read();
+
+        assertEquals(1, contactsRead.size());
+        for( Contact contact : meetingsRead.get(0).getContacts() ) {
+            if ( contact.getId() == 7 ) {
+                assertEquals("Unknown", contact.getName());
+                assertEquals("Only in a meeting", contact.getNotes());
+            } else {
+                assertSame(contactsRead.get(0), contact);
+            }
+        }
+    }
+
+    /**
+     * Test that decoding in parallel reads back the same records, in
+     * the order they were written, over enough records to be split
+     * into several sections.
+     *
+     * @throws IOException on file failure
+     */
+    @Test
+    public void testParallelRead() throws IOException {
+        List<Contact> contacts = new ArrayList<Contact>();
+        List<Meeting> meetings = new ArrayList<Meeting>();
+        for( int i = 1; i <= 40000; i++ ) {
+            Contact contact = new ContactImpl(i, "Contact " + i, "");
+            contacts.add(contact);
+            Calendar date = new GregorianCalendar(2014, 0, 1);
+            date.add(Calendar.MINUTE, i);
+            meetings.add(new PastMeetingImpl(i, date, Collections.singleton(contact), "Notes " + i));
+        }
+        write(contacts, meetings);
+
+        BinarySnapshot.read(new File(DATA_FILE), new BinarySnapshot.Listener() {
+            public void contact(Contact contact) {
+                contactsRead.add(contact);
+            }
+            public void meeting(Meeting meeting) {
+                meetingsRead.add(meeting);
+            }
+        }, new ForkJoinPool(4));
+
+        assertEquals(contacts.size(), contactsRead.size());
+        assertEquals(meetings.size(), meetingsRead.size());
+        for( int i = 0; i < meetings.size(); i++ ) {
+            Meeting meeting = meetingsRead.get(i);
+            assertEquals(i + 1, meeting.getId());
+            assertEquals("Notes " + (i + 1), ((PastMeeting) meeting).getNotes());
+            assertEquals(meetings.get(i).getDate().getTimeInMillis(), meeting.getDate().getTimeInMillis());
+            assertSame(contactsRead.get(i), meeting.getContacts().iterator().next());
+        }
+    }
+
+    /**
+     * Test that a JSON data file is not taken for a binary one.
+     *
+     * @throws IOException on file failure
+     */
+    @Test
+    public void testJSONIsNotBinary() throws IOException {
+        FileWriter fw = new FileWriter(DATA_FILE);
+        fw.write("{\"contact\":[]}");
+        fw.close();
+        assertFalse(BinarySnapshot.isBinary(new File(DATA_FILE)));
+    }
+
+    /**
+     * Writes the given contacts and meetings to the data file.
+     */
+    private void write(List<Contact> contacts, List<Meeting> meetings) throws IOException {
+        FileChannel channel = FileChannel.open(new File(DATA_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            BinarySnapshot.write(channel, contacts, meetings);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the data file into the read lists, as loading does.
+     */
+    private void read() throws IOException {
+        BinarySnapshot.read(new File(DATA_FILE), new BinarySnapshot.Listener() {
+            public void contact(Contact contact) {
+                contactsRead.add(contact);
+            }
+            public void meeting(Meeting meeting) {
+                meetingsRead.add(meeting);
+            }
+        }, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,97 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import contactManager.CoarseClock;
+
+/**
+ * Unit test to test the CoarseClock class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestCoarseClock {
+    /**
+     * The longest time to wait for a clock to tick, however loaded the machine.
+     */
+    private final long TICK_DEADLINE = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Test that the time read follows the system time.
+     *
+     * @throws InterruptedException if interrupted while waiting for ticks
+     */
+    @Test
+    public void testFollowsSystemTime() throws InterruptedException {
+        try (CoarseClock clock = new CoarseClock(1, TimeUnit.MILLISECONDS)) {
+            long start = clock.millis();
+            long later = awaitAfter(clock, start);
+
+            assertTrue(later > start);
+            assertTrue(later <= System.currentTimeMillis());
+            assertTrue(clock.instant().toEpochMilli() >= later);
+        }
+    }
+
+    /**
+     * Test that the time no longer changes once closed, while an open clock goes on.
+     *
+     * @throws InterruptedException if interrupted while waiting for ticks
+     */
+    @Test
+    public void testClose() throws InterruptedException {
+        try (CoarseClock open = new CoarseClock(1, TimeUnit.MILLISECONDS)) {
+            CoarseClock clock = new CoarseClock(1, TimeUnit.MILLISECONDS);
+            clock.close();
+            long closed = clock.millis();
+
+            // Wait until the closed clock would have ticked past the time it shows.
+            awaitAfter(open, Math.max(closed, open.millis()));
+            assertEquals(closed, clock.millis());
+        }
+    }
+
+    /**
+     * Test that a clock in another zone shares the time of the clock it came from.
+     */
+    @Test
+    public void testWithZone() {
+        try (CoarseClock clock = new CoarseClock(1, TimeUnit.HOURS)) {
+            ZoneId zone = ZoneId.of("Asia/Tokyo");
+            Clock tokyo = clock.withZone(zone);
+
+            assertEquals(zone, tokyo.getZone());
+            assertEquals(clock.millis(), tokyo.millis());
+            assertSame(clock, clock.withZone(clock.getZone()));
+        }
+    }
+
+    /**
+     * Test that a tick must be positive.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadTick() {
+        new CoarseClock(0, TimeUnit.MILLISECONDS).close();
+    }
+
+    /**
+     * Waits for the given clock to show a time after the given one, failing past the deadline.
+     */
+    private long awaitAfter(Clock clock, long time) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TICK_DEADLINE;
+        while( clock.millis() <= time ) {
+            if ( System.currentTimeMillis() > deadline ) fail("The clock did not tick.");
+            Thread.sleep(1);
+        }
+        return clock.millis();
+    }
+}
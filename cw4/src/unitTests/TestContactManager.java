@@ -12,25 +12,39 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import contactManager.BinarySnapshot;
+import contactManager.CoarseClock;
+import contactManager.ConflictPolicy;
 import contactManager.Contact;
 import contactManager.ContactImpl;
 import contactManager.ContactManager;
 import contactManager.ContactManagerImpl;
+import contactManager.DataFileFormat;
 import contactManager.FutureMeeting;
 import contactManager.FutureMeetingImpl;
 import contactManager.JSONUtils;
@@ -75,6 +89,16 @@ public class TestContactManager {
      */
     private final String TEST_DATA_FILE = TEST_FILE_PATH + "test_data.txt";
 
+    /**
+     * The log of changes made on the test data file.
+     */
+    private final String TEST_LOG_FILE = TEST_DATA_FILE + ".log";
+
+    /**
+     * The previous test data file, kept on flush.
+     */
+    private final String TEST_BACKUP_FILE = TEST_DATA_FILE + ".bak";
+
     /**
      * The known key name to define Contact objects in file.
      */
@@ -402,6 +426,11 @@ public class TestContactManager {
      */
     private ContactManager contactManager;
 
+    /**
+     * The other ContactManagers loaded by a test, closed after it.
+     */
+    private final List<ContactManagerImpl> loadedManagers = new LinkedList<ContactManagerImpl>();
+
     // ********************************** BEFORE ********************************* //
     /**
      * Loading all needed values to be ready for each test.
@@ -427,6 +456,16 @@ public class TestContactManager {
         contactManager = new ContactManagerImpl(TEST_DATA_FILE);
     }
 
+    // ********************************** AFTER ********************************** //
+    /**
+     * Closing all ContactManagers, so none is left logging or flushing at exit.
+     */
+    @After
+    public void after() {
+        ((ContactManagerImpl) contactManager).close();
+        for( ContactManagerImpl manager : loadedManagers ) manager.close();
+    }
+
 
     // **************************************************************************** //
     //                                                                              //
@@ -667,6 +706,64 @@ public class TestContactManager {
         contactManager.addMeetingNotes(MEETING_ID_FUTURE, MEETING_NOTES_PRESENT);
     }
 
+    /**
+     * Test that adding notes moves a meeting from the contact's future list into the past list.
+     */
+    @Test
+    public void testAddMeetingNotesMovesContactMeetingLists() {
+        contactManager.addMeetingNotes(MEETING_ID_FUTURE_PAST_DATE, MEETING_NOTES_PRESENT);
+
+        // The meeting is no longer listed as a future meeting of its contact.
+        for( Meeting meeting : contactManager.getFutureMeetingList(futureContact) ) {
+            assertTrue(meeting.getId() != MEETING_ID_FUTURE_PAST_DATE);
+        }
+
+        // And now listed, once, as a past meeting of its contact.
+        List<PastMeeting> pastMeetings = contactManager.getPastMeetingList(futureContact).stream()
+                .filter(meeting -> meeting.getId() == MEETING_ID_FUTURE_PAST_DATE)
+                .collect(Collectors.toList());
+        assertEquals(1, pastMeetings.size());
+        assertEquals(MEETING_NOTES_PRESENT, pastMeetings.get(0).getNotes());
+    }
+
+
+    /**
+     * Test that a future meeting whose date is past is listed as a past meeting without notes.
+     */
+    @Test
+    public void testFutureMeetingWithPastDateIsPast() {
+        for( Meeting meeting : contactManager.getFutureMeetingList(futureContact) ) {
+            assertTrue(meeting.getId() != MEETING_ID_FUTURE_PAST_DATE);
+        }
+
+        PastMeeting pastMeeting = contactManager.getPastMeeting(MEETING_ID_FUTURE_PAST_DATE);
+        assertEquals("", pastMeeting.getNotes());
+        assertTrue(contactManager.getPastMeetingList(futureContact).contains(pastMeeting));
+    }
+
+    /**
+     * Test that a future meeting becomes a past meeting once the clock passes its date.
+     */
+    @Test
+    public void testFutureMeetingBecomesPast() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        Calendar date = new GregorianCalendar(2014, 0, 2, 10, 30);
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() - 1), ZoneId.systemDefault()));
+        int id = contactManager.addFutureMeeting(futureContactList, date);
+
+        // Still future up to the very millisecond of the meeting.
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis()), ZoneId.systemDefault()));
+        assertTrue(FutureMeeting.class.isInstance(contactManager.getMeeting(id)));
+        assertEquals(id, contactManager.getFutureMeetingList(futureContact).get(0).getId());
+
+        // Past one millisecond later.
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() + 1), ZoneId.systemDefault()));
+        assertEquals(id, contactManager.getPastMeeting(id).getId());
+        for( Meeting meeting : contactManager.getFutureMeetingList(futureContact) ) {
+            assertTrue(meeting.getId() != id);
+        }
+    }
+
 
     // ****************************** PAST MEETING tests ******************************* //
 
@@ -864,6 +961,23 @@ public class TestContactManager {
         assertEquals(searchedFoundMeeting.getNotes(),newNotes);
     }
 
+    /**
+     * Check that a new past meeting gets its own id and leaves all loaded meetings in place.
+     */
+    @Test
+    public void testAddNewPastMeetingKeepsExistingMeetings() {
+        contactManager.addNewPastMeeting(notInMeetingsContactList, DATE_PAST, MEETING_NOTES_PAST);
+        PastMeeting newMeeting = contactManager.getPastMeetingList(notInMeetingContact).get(0);
+
+        // The new meeting must not take the id of any meeting loaded from file.
+        int[] loadedIds = { MEETING_ID_PRESENT, MEETING_ID_PAST, MEETING_ID_PAST_1, MEETING_ID_PAST_2,
+                MEETING_ID_PAST_3, MEETING_ID_FUTURE, MEETING_ID_FUTURE_PAST_DATE };
+        for( int id : loadedIds ) {
+            assertTrue(newMeeting.getId() != id);
+            assertNotNull(contactManager.getMeeting(id));
+        }
+    }
+
     /** 
      * Check if exception is thrown on an empty list.
      */ 
@@ -1066,6 +1180,7 @@ public class TestContactManager {
      */ 
     @Test
     public void testGetFutureMeetingListByContactSorted() { 
+        addSecondFutureMeeting();
         List<Meeting> futureMeetingsList = contactManager.getFutureMeetingList(futureContact);
 
         // Check if not null
@@ -1103,6 +1218,7 @@ public class TestContactManager {
      */ 
     @Test
     public void testGetFutureMeetingListByContactNoDups() { 
+        addSecondFutureMeeting();
         List<Meeting> futureMeetingListFound = contactManager.getFutureMeetingList(futureContact);
 
         // check it is not null
@@ -1309,6 +1425,660 @@ public class TestContactManager {
         assertEquals(newContact.getNotes(),newNotes);
     }
 
+    /**
+     * Check that a flushed file is loaded back by a new contactManager.
+     */
+    @Test
+    public void testFlushReload() {
+        String newName = "Completely new reloaded name";
+        contactManager.addNewContact(newName, CONTACT_NOTES_NEW);
+        contactManager.addMeetingNotes(MEETING_ID_PAST, MEETING_NOTES_PRESENT);
+        contactManager.flush();
+
+        // Load the saved file into a new instance.
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+
+        // The new contact was saved.
+        Set<Contact> found = reloaded.getContacts(newName);
+        assertEquals(1, found.size());
+        assertEquals(CONTACT_NOTES_NEW, found.iterator().next().getNotes());
+
+        // All meetings were saved, including the new notes.
+        verify(presentMeeting, reloaded.getMeeting(MEETING_ID_PRESENT));
+        verify(futureMeeting, reloaded.getFutureMeeting(MEETING_ID_FUTURE));
+        assertEquals(MEETING_NOTES_PRESENT, reloaded.getPastMeeting(MEETING_ID_PAST).getNotes());
+    }
+
+    /**
+     * Check that the saved file starts with the number of records, and
+     * that all records are loaded back.
+     *
+     * @throws IOException on failure to read the data file
+     * @throws ParseException on failure to parse the data file
+     */
+    @Test
+    public void testFlushWritesCounts() throws IOException, ParseException {
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        contactManager.flush();
+
+        FileReader in = new FileReader(TEST_DATA_FILE);
+        JSONObject jo = (JSONObject) new JSONParser().parse(in);
+        in.close();
+        JSONObject count = (JSONObject) ((JSONArray) jo.get("count")).get(0);
+
+        int contacts = contactManager.getContacts("").size();
+        int meetings = contactManager.getFutureMeetingList(new GregorianCalendar(1900, 0, 1)).size();
+        assertEquals(contacts, Integer.parseInt(count.get(CONTACT_KEY).toString()));
+        assertEquals(meetings, Integer.parseInt(count.get(MEETING_KEY).toString()));
+        assertEquals(contacts, ((JSONArray) jo.get(CONTACT_KEY)).size());
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(contacts, reloaded.getContacts("").size());
+        assertEquals(meetings, reloaded.getFutureMeetingList(new GregorianCalendar(1900, 0, 1)).size());
+    }
+
+    /**
+     * Check that a contactManager set to the binary format loads the JSON file,
+     * saves a smaller binary file, and that the binary file is loaded back.
+     * 
+     * @throws IOException on failure to read the data file header
+     */
+    @Test
+    public void testBinaryFlushReload() throws IOException {
+        ContactManager binary = closeAfter(new ContactManagerImpl(TEST_DATA_FILE, DataFileFormat.BINARY));
+        binary.addMeetingNotes(MEETING_ID_PAST, MEETING_NOTES_PRESENT);
+        binary.flush();
+
+        File dataFile = new File(TEST_DATA_FILE);
+        assertTrue(BinarySnapshot.isBinary(dataFile));
+        assertTrue(dataFile.length() < new File(TEST_BACKUP_FILE).length());
+
+        // The format is told by the header, whatever the format set.
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        verify(presentMeeting, reloaded.getMeeting(MEETING_ID_PRESENT));
+        verify(futureMeeting, reloaded.getFutureMeeting(MEETING_ID_FUTURE));
+        assertEquals(MEETING_NOTES_PRESENT, reloaded.getPastMeeting(MEETING_ID_PAST).getNotes());
+        verifyContactLists(contactManager.getContacts(""), reloaded.getContacts(""));
+    }
+
+    /**
+     * Check that flushing keeps the previous data file, and that it is
+     * loaded when the data file is missing.
+     */
+    @Test
+    public void testFlushKeepsBackup() {
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        contactManager.flush();
+        assertTrue(new File(TEST_BACKUP_FILE).exists());
+
+        // Without the data file, the previous data file is loaded.
+        new File(TEST_DATA_FILE).delete();
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        verify(presentMeeting, reloaded.getMeeting(MEETING_ID_PRESENT));
+    }
+
+    /**
+     * Check that changes not yet flushed are replayed from the log by a new contactManager.
+     */
+    @Test
+    public void testLogReplay() {
+        String newName = "Completely new logged name";
+        String newNotes = "Completely new logged notes";
+        contactManager.addNewContact(newName, CONTACT_NOTES_NEW);
+        contactManager.addMeetingNotes(MEETING_ID_PAST, MEETING_NOTES_PRESENT);
+        contactManager.getContacts(CONTACT_ID_PAST).iterator().next().addNotes(newNotes);
+
+        // Load the unchanged data file and the log into a new instance.
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+
+        assertEquals(1, reloaded.getContacts(newName).size());
+        assertEquals(MEETING_NOTES_PRESENT, reloaded.getPastMeeting(MEETING_ID_PAST).getNotes());
+        assertEquals(newNotes, reloaded.getContacts(CONTACT_ID_PAST).iterator().next().getNotes());
+    }
+
+    /**
+     * Check that closing keeps changes not yet flushed in the log, and that closing again does nothing.
+     */
+    @Test
+    public void testCloseKeepsLog() {
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        ((ContactManagerImpl) contactManager).close();
+        ((ContactManagerImpl) contactManager).close();
+        assertTrue(new File(TEST_LOG_FILE).length() > 0);
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(1, reloaded.getContacts(CONTACT_NAME_NEW).size());
+    }
+
+    /**
+     * Check that meetings loaded back hold the known contacts themselves,
+     * so notes added to a contact show in all of its meetings.
+     */
+    @Test
+    public void testMeetingContactsAreKnownContacts() {
+        contactManager.flush();
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+
+        Contact contact = reloaded.getContacts(CONTACT_ID_PAST).iterator().next();
+        contact.addNotes(CONTACT_NOTES_NEW);
+        for( Meeting meeting : reloaded.getPastMeetingList(contact) ) {
+            assertTrue(meeting.getContacts().stream().anyMatch(c -> c == contact));
+        }
+        assertTrue(reloaded.getPastMeetingList(contact).size() > 0);
+    }
+
+    /**
+     * Check that the periodic flush saves changes without flush() being called.
+     *
+     * @throws InterruptedException if interrupted while waiting for the flush
+     */
+    @Test
+    public void testPeriodicFlush() throws InterruptedException {
+        ContactManagerImpl periodic = (ContactManagerImpl) contactManager;
+        periodic.startPeriodicFlush(10, TimeUnit.MILLISECONDS);
+        try {
+            contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+
+            // Wait for the change to move from the log to the data file, the rotated log dropped last.
+            long deadline = System.currentTimeMillis() + 30000;
+            while( System.currentTimeMillis() < deadline
+                    && (new File(TEST_LOG_FILE).length() > 0 || new File(TEST_LOG_FILE + ".old").exists()) ) {
+                Thread.sleep(10);
+            }
+        } finally {
+            periodic.stopPeriodicFlush();
+        }
+        assertEquals(0, new File(TEST_LOG_FILE).length());
+        assertFalse(new File(TEST_LOG_FILE + ".old").exists());
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(1, reloaded.getContacts(CONTACT_NAME_NEW).size());
+    }
+
+    /**
+     * Check that flushing as the periodic flush does only saves when anything changed.
+     */
+    @Test
+    public void testPeriodicFlushSkipsUnchanged() {
+        ContactManagerImpl periodic = (ContactManagerImpl) contactManager;
+        periodic.flushIfChanged();
+
+        // A save would have kept the previous data file as backup.
+        assertFalse(new File(TEST_BACKUP_FILE).exists());
+
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        periodic.flushIfChanged();
+        assertTrue(new File(TEST_BACKUP_FILE).exists());
+        assertEquals(0, new File(TEST_LOG_FILE).length());
+    }
+
+    /**
+     * Check that contacts added from several threads with durable writes
+     * get distinct ids, and are all replayed from the log when reloading.
+     *
+     * @throws InterruptedException if interrupted waiting for the threads
+     */
+    @Test
+    public void testDurableWrites() throws InterruptedException {
+        ((ContactManagerImpl) contactManager).setDurableWrites(true);
+        List<Thread> threads = new LinkedList<Thread>();
+        for( int t = 0; t < 4; t++ ) {
+            final int thread = t;
+            threads.add(new Thread() {
+                public void run() {
+                    for( int i = 0; i < 25; i++ ) contactManager.addNewContact("Durable " + thread + "-" + i, "");
+                }
+            });
+        }
+        for( Thread thread : threads ) thread.start();
+        for( Thread thread : threads ) thread.join();
+
+        // Reload without flushing, so the contacts come from the log only.
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        Set<Contact> durable = reloaded.getContacts("Durable");
+        assertEquals(100, durable.size());
+        Set<Integer> ids = durable.stream().map(Contact::getId).collect(Collectors.toSet());
+        assertEquals(100, ids.size());
+    }
+
+    /**
+     * Check that a change which cannot be forced to disk with durable writes
+     * is reported to the caller, here as the log was closed under it.
+     */
+    @Test(expected=UncheckedIOException.class)
+    public void testDurableWriteFailure() {
+        ContactManagerImpl durable = (ContactManagerImpl) contactManager;
+        durable.setDurableWrites(true);
+        durable.close();
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+    }
+
+    /**
+     * Check that contacts and meetings added while other threads query
+     * get distinct ids, are all found afterwards, and that no query fails.
+     *
+     * @throws Throwable the first failure of a thread, if any
+     */
+    @Test
+    public void testConcurrentReadsAndWrites() throws Throwable {
+        final Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        final Calendar date = new GregorianCalendar(2014, 0, 1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final int pastMeetings = contactManager.getPastMeetingList(contact).size();
+
+        List<Thread> threads = new LinkedList<Thread>();
+        for( int t = 0; t < 4; t++ ) {
+            final int thread = t;
+            // Writers add a contact and a meeting at a time.
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for( int i = 0; i < 50; i++ ) {
+                            contactManager.addNewContact("Concurrent " + thread + "-" + i, "");
+                            contactManager.addNewPastMeeting(Collections.singleton(contact), date, "Concurrent");
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            // Readers query the indexes being changed meanwhile.
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for( int i = 0; i < 200; i++ ) {
+                            contactManager.getContacts("Concurrent");
+                            contactManager.getContacts(CONTACT_ID_PAST);
+                            contactManager.getPastMeetingList(contact);
+                            contactManager.getFutureMeetingList(date);
+                            contactManager.getMeeting(i);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        for( Thread thread : threads ) thread.start();
+        for( Thread thread : threads ) thread.join();
+        if ( failure.get() != null ) throw failure.get();
+
+        Set<Contact> added = contactManager.getContacts("Concurrent");
+        assertEquals(200, added.size());
+        assertEquals(200, added.stream().map(Contact::getId).collect(Collectors.toSet()).size());
+        assertEquals(pastMeetings + 200, contactManager.getPastMeetingList(contact).size());
+    }
+
+    /**
+     * Check that a snapshot answers queries as the contact manager did
+     * when it was taken, whatever changes are made afterwards.
+     */
+    @Test
+    public void testSnapshot() {
+        Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        String notes = contact.getNotes();
+        int pastMeetings = contactManager.getPastMeetingList(contact).size();
+        String meetingNotes = contactManager.getPastMeeting(MEETING_ID_PAST).getNotes();
+
+        ContactManager snapshot = ((ContactManagerImpl) contactManager).snapshot();
+        assertEquals(contactManager.getContacts("").size(), snapshot.getContacts("").size());
+        assertEquals(pastMeetings, snapshot.getPastMeetingList(contact).size());
+        assertEquals(contactManager.getFutureMeetingList(contact).size(), snapshot.getFutureMeetingList(contact).size());
+
+        // Change all kinds of data.
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        contactManager.addNewPastMeeting(Collections.singleton(contact), new GregorianCalendar(2014, 0, 1), "After the snapshot");
+        contactManager.addMeetingNotes(MEETING_ID_PAST, "Notes after the snapshot");
+        contact.addNotes("Contact notes after the snapshot");
+
+        // The snapshot taken before is unchanged.
+        assertTrue(snapshot.getContacts(CONTACT_NAME_NEW).isEmpty());
+        assertEquals(pastMeetings, snapshot.getPastMeetingList(contact).size());
+        assertEquals(meetingNotes, snapshot.getPastMeeting(MEETING_ID_PAST).getNotes());
+        assertEquals(notes, snapshot.getContacts(CONTACT_ID_PAST).iterator().next().getNotes());
+
+        // Including the notes of contacts read through their meetings.
+        for( Meeting meeting : snapshot.getPastMeetingList(contact) ) {
+            for( Contact attendee : meeting.getContacts() ) {
+                if ( attendee.getId() == CONTACT_ID_PAST ) assertEquals(notes, attendee.getNotes());
+            }
+        }
+
+        // A snapshot taken now has all changes.
+        ContactManager latest = ((ContactManagerImpl) contactManager).snapshot();
+        assertEquals(1, latest.getContacts(CONTACT_NAME_NEW).size());
+        assertEquals(pastMeetings + 1, latest.getPastMeetingList(contact).size());
+        assertEquals("Notes after the snapshot", latest.getPastMeeting(MEETING_ID_PAST).getNotes());
+        assertEquals("Contact notes after the snapshot", latest.getContacts(CONTACT_ID_PAST).iterator().next().getNotes());
+        for( Contact attendee : latest.getMeeting(MEETING_ID_PAST).getContacts() ) {
+            if ( attendee.getId() == CONTACT_ID_PAST ) assertEquals("Contact notes after the snapshot", attendee.getNotes());
+        }
+    }
+
+    /**
+     * Check that a snapshot tells past meetings by the clock of its contact manager.
+     */
+    @Test
+    public void testSnapshotClock() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        Calendar date = contactManager.getMeeting(MEETING_ID_PAST).getDate();
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() - 1), ZoneId.systemDefault()));
+
+        ContactManager snapshot = manager.snapshot();
+        assertEquals(date.getTimeInMillis(), snapshot.getFutureMeeting(MEETING_ID_PAST).getDate().getTimeInMillis());
+    }
+
+    /**
+     * Check that flushing while a snapshot is in use saves the changes made since it was taken.
+     */
+    @Test
+    public void testFlushWithSnapshot() {
+        ContactManager snapshot = ((ContactManagerImpl) contactManager).snapshot();
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        contactManager.flush();
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(1, reloaded.getContacts(CONTACT_NAME_NEW).size());
+        assertTrue(snapshot.getContacts(CONTACT_NAME_NEW).isEmpty());
+    }
+
+    /**
+     * Check that a snapshot cannot be changed.
+     */
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSnapshotReadOnly() {
+        ((ContactManagerImpl) contactManager).snapshot().addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+    }
+
+    /**
+     * Check that a batch of contacts gets consecutive new ids, in order,
+     * and is kept once reloaded.
+     */
+    @Test
+    public void testAddNewContacts() {
+        int[] ids = ((ContactManagerImpl) contactManager).addNewContacts(
+                Arrays.asList("Batch One", "Batch Two", "Batch Three"), Arrays.asList("1", "2", "3"));
+
+        assertEquals(3, ids.length);
+        for( int i = 0; i < ids.length; i++ ) {
+            Contact contact = contactManager.getContacts(ids[i]).iterator().next();
+            assertEquals(String.valueOf(i + 1), contact.getNotes());
+            if ( i > 0 ) assertEquals(ids[i - 1] + 1, ids[i]);
+        }
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(3, reloaded.getContacts("Batch").size());
+    }
+
+    /**
+     * Check that batches of meetings are added with their own ids, and
+     * found in their contacts' meeting lists.
+     */
+    @Test
+    public void testAddMeetingsBatch() {
+        ContactManagerImpl batch = (ContactManagerImpl) contactManager;
+        Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        int pastMeetings   = contactManager.getPastMeetingList(contact).size();
+        int futureMeetings = contactManager.getFutureMeetingList(contact).size();
+        Calendar future = Calendar.getInstance();
+        future.add(Calendar.YEAR, 1);
+        Set<Contact> contacts = Collections.singleton(contact);
+
+        int[] pastIds = batch.addNewPastMeetings(Arrays.asList(contacts, contacts),
+                Arrays.<Calendar>asList(new GregorianCalendar(2014, 0, 1), new GregorianCalendar(2014, 0, 2)),
+                Arrays.asList("First", "Second"));
+        int[] futureIds = batch.addFutureMeetings(Collections.singletonList(contacts), Collections.singletonList(future));
+
+        assertEquals("Second", contactManager.getPastMeeting(pastIds[1]).getNotes());
+        assertEquals(pastIds[1] + 1, futureIds[0]);
+        assertEquals(pastMeetings + 2, contactManager.getPastMeetingList(contact).size());
+        assertEquals(futureMeetings + 1, contactManager.getFutureMeetingList(contact).size());
+    }
+
+    /**
+     * Check that a batch with one bad meeting adds none of its meetings.
+     */
+    @Test
+    public void testAddMeetingsBatchAllOrNothing() {
+        Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        int pastMeetings = contactManager.getPastMeetingList(contact).size();
+        Set<Contact> unknown = Collections.<Contact>singleton(new ContactImpl(CONTACT_ID_NOT_REAL, CONTACT_NAME_NOT_REAL, CONTACT_NOTES_NOT_REAL));
+
+        boolean rejected = false;
+        try {
+            ((ContactManagerImpl) contactManager).addNewPastMeetings(Arrays.asList(Collections.singleton(contact), unknown),
+                    Arrays.<Calendar>asList(new GregorianCalendar(2014, 0, 1), new GregorianCalendar(2014, 0, 2)),
+                    Arrays.asList("Not kept", "Unknown contact"));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+        assertEquals(pastMeetings, contactManager.getPastMeetingList(contact).size());
+    }
+
+    /**
+     * Check that a batch of future meetings set in the past is rejected.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddFutureMeetingsInPast() {
+        Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        ((ContactManagerImpl) contactManager).addFutureMeetings(Collections.singletonList(Collections.singleton(contact)),
+                Collections.<Calendar>singletonList(new GregorianCalendar(2014, 0, 1)));
+    }
+
+    /**
+     * Check that meetings are told past or future by the clock set, not by the time of the test.
+     */
+    @Test
+    public void testFixedClock() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        Contact contact = contactManager.getContacts(CONTACT_ID_PAST).iterator().next();
+        Calendar date = new GregorianCalendar(2014, 0, 2);
+
+        // A day before the meeting, it can be added as a future meeting.
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() - TimeUnit.DAYS.toMillis(1)), ZoneId.systemDefault()));
+        int id = contactManager.addFutureMeeting(Collections.singleton(contact), date);
+        assertNotNull(contactManager.getFutureMeeting(id));
+
+        // A day after the meeting, it is past.
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() + TimeUnit.DAYS.toMillis(1)), ZoneId.systemDefault()));
+        boolean rejected = false;
+        try {
+            contactManager.getFutureMeeting(id);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+    }
+
+    /**
+     * Check that a coarse clock can be used to tell meetings past or future.
+     */
+    @Test
+    public void testCoarseClock() {
+        try (CoarseClock clock = new CoarseClock(1, TimeUnit.MILLISECONDS)) {
+            ((ContactManagerImpl) contactManager).setClock(clock);
+            assertNotNull(contactManager.getPastMeeting(MEETING_ID_PAST));
+            assertNotNull(contactManager.getFutureMeeting(MEETING_ID_FUTURE));
+        }
+    }
+
+    /**
+     * Check that a meeting overlapping another of a contact is only rejected when so set.
+     */
+    @Test
+    public void testConflictRejected() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Calendar start = (Calendar) DATE_FUTURE.clone();
+        start.add(Calendar.HOUR_OF_DAY, 1);
+        Calendar overlap = (Calendar) start.clone();
+        overlap.add(Calendar.MINUTE, 30);
+        Calendar after = (Calendar) start.clone();
+        after.add(Calendar.HOUR_OF_DAY, 1);
+
+        manager.setConflictPolicy(ConflictPolicy.REJECT);
+        manager.addFutureMeeting(futureContactList, start, hour);
+
+        // Starting half way through the first meeting.
+        boolean rejected = false;
+        try {
+            manager.addFutureMeeting(futureContactList, overlap, hour);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+
+        // Starting as the first meeting ends, or with other contacts.
+        manager.addFutureMeeting(futureContactList, after, hour);
+        manager.addFutureMeeting(pastContactList, overlap, hour);
+
+        // Allowed all the same when not rejecting.
+        manager.setConflictPolicy(ConflictPolicy.ALLOW);
+        manager.addFutureMeeting(futureContactList, overlap, hour);
+        assertEquals(4, contactManager.getFutureMeetingList(futureContact).size());
+    }
+
+    /**
+     * Check that the meetings overlapping a time are listed in date order.
+     */
+    @Test
+    public void testGetConflicts() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Calendar start = contactManager.getFutureMeeting(MEETING_ID_FUTURE).getDate();
+        int id = manager.addFutureMeeting(futureContactList, start, 2 * hour);
+        Calendar later = (Calendar) start.clone();
+        later.add(Calendar.HOUR_OF_DAY, 1);
+
+        List<Meeting> conflicts = manager.getConflicts(futureContactList, start, 0);
+        assertEquals(2, conflicts.size());
+        assertEquals(MEETING_ID_FUTURE, conflicts.get(0).getId());
+        assertEquals(id, conflicts.get(1).getId());
+        assertEquals(2 * hour, conflicts.get(1).getDurationInMillis());
+
+        // The first meeting takes no time, so is over by then.
+        conflicts = manager.getConflicts(futureContactList, later, hour);
+        assertEquals(1, conflicts.size());
+        assertEquals(id, conflicts.get(0).getId());
+        assertTrue(manager.getConflicts(pastContactList, later, hour).isEmpty());
+    }
+
+    /**
+     * Check that a batch whose meetings overlap each other adds none of them when rejecting conflicts.
+     */
+    @Test
+    public void testBatchConflictRejected() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        manager.setConflictPolicy(ConflictPolicy.REJECT);
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Calendar start = (Calendar) DATE_FUTURE.clone();
+        start.add(Calendar.DAY_OF_MONTH, 1);
+        Calendar overlap = (Calendar) start.clone();
+        overlap.add(Calendar.MINUTE, 59);
+
+        boolean rejected = false;
+        try {
+            manager.addFutureMeetings(Arrays.asList(pastContactList, pastContactList),
+                    Arrays.asList(start, overlap), Arrays.asList(hour, hour));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+        assertTrue(contactManager.getFutureMeetingList(pastContact).isEmpty());
+
+        // Back to back meetings are fine.
+        overlap.add(Calendar.MINUTE, 1);
+        int[] ids = manager.addFutureMeetings(Arrays.asList(pastContactList, pastContactList),
+                Arrays.asList(start, overlap), Arrays.asList(hour, hour));
+        assertEquals(2, ids.length);
+    }
+
+    /**
+     * Check that meeting durations are saved and loaded back.
+     */
+    @Test
+    public void testDurationKeptOnReload() {
+        long duration = TimeUnit.MINUTES.toMillis(45);
+        int id = ((ContactManagerImpl) contactManager).addFutureMeeting(futureContactList, DATE_FUTURE, duration);
+        contactManager.flush();
+
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+        assertEquals(duration, reloaded.getFutureMeeting(id).getDurationInMillis());
+        assertEquals(0, reloaded.getFutureMeeting(MEETING_ID_FUTURE).getDurationInMillis());
+    }
+
+    /**
+     * Check that the duration of a meeting given notes is kept when replaying the log.
+     */
+    @Test
+    public void testDurationKeptOnLogReplay() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        long duration = TimeUnit.MINUTES.toMillis(45);
+        Calendar date = new GregorianCalendar(2014, 0, 2, 10, 30);
+        manager.setClock(Clock.fixed(Instant.ofEpochMilli(date.getTimeInMillis() - 1), ZoneId.systemDefault()));
+        int id = manager.addFutureMeeting(futureContactList, date, duration);
+
+        // Once held, give it notes, and reload without flushing.
+        manager.setClock(Clock.systemDefaultZone());
+        contactManager.addMeetingNotes(id, MEETING_NOTES_PRESENT);
+        ContactManager reloaded = closeAfter(new ContactManagerImpl(TEST_DATA_FILE));
+
+        PastMeeting meeting = reloaded.getPastMeeting(id);
+        assertEquals(MEETING_NOTES_PRESENT, meeting.getNotes());
+        assertEquals(duration, meeting.getDurationInMillis());
+    }
+
+    /**
+     * Check that free slots are the gaps between the meetings of all contacts, in date order.
+     */
+    @Test
+    public void testFindFreeSlots() {
+        ContactManagerImpl manager = (ContactManagerImpl) contactManager;
+        int[] ids = manager.addNewContacts(Arrays.asList("Ann", "Ben", "Cid"), Arrays.asList("", "", ""));
+        Contact ann = manager.getContacts(ids[0]).iterator().next();
+        Contact ben = manager.getContacts(ids[1]).iterator().next();
+        Contact cid = manager.getContacts(ids[2]).iterator().next();
+        Set<Contact> all = new HashSet<Contact>(Arrays.asList(ann, ben, cid));
+        long minute = TimeUnit.MINUTES.toMillis(1);
+
+        manager.addFutureMeeting(Collections.singleton(ann), at(9, 0), 60 * minute);
+        manager.addFutureMeeting(Collections.singleton(ben), at(9, 30), 90 * minute);
+        manager.addFutureMeeting(Collections.singleton(cid), at(12, 0), 30 * minute);
+        manager.addFutureMeeting(new HashSet<Contact>(Arrays.asList(ann, cid)), at(14, 0), 60 * minute);
+
+        // Free 11:00 to 12:00, 12:30 to 14:00 and 15:00 on.
+        assertEquals(Arrays.asList(at(11, 0), at(12, 30), at(15, 0)), manager.findFreeSlots(all, at(9, 0), at(17, 0), 60 * minute, 10));
+        assertEquals(Arrays.asList(at(11, 0), at(12, 30)), manager.findFreeSlots(all, at(9, 0), at(17, 0), 60 * minute, 2));
+        assertEquals(Arrays.asList(at(12, 30), at(15, 0)), manager.findFreeSlots(all, at(9, 0), at(17, 0), 90 * minute, 10));
+
+        // Starting while a meeting is under way, or ending before a slot fits.
+        assertEquals(Arrays.asList(at(11, 0)), manager.findFreeSlots(all, at(9, 45), at(12, 0), 60 * minute, 10));
+        assertTrue(manager.findFreeSlots(all, at(9, 0), at(11, 59), 60 * minute, 10).isEmpty());
+
+        // Only the given contacts need be free.
+        assertEquals(Arrays.asList(at(8, 0), at(11, 0)), manager.findFreeSlots(Collections.singleton(ben), at(8, 0), at(17, 0), 60 * minute, 2));
+    }
+
+    /**
+     * Returns the given time of a day far enough in the future for meetings to be set then.
+     */
+    private Calendar at(int hour, int minute) {
+        return new GregorianCalendar(2100, 0, 4, hour, minute);
+    }
+
+    /**
+     * Check that flushing empties the log, as all changes are then in the data file.
+     */
+    @Test
+    public void testFlushEmptiesLog() {
+        contactManager.addNewContact(CONTACT_NAME_NEW, CONTACT_NOTES_NEW);
+        assertTrue(new File(TEST_LOG_FILE).length() > 0);
+
+        contactManager.flush();
+        assertEquals(0, new File(TEST_LOG_FILE).length());
+    }
+
     /** 
      * Check if when application is closed, expected data is saved in file.
      */ 
@@ -1425,6 +2195,23 @@ public class TestContactManager {
         return jMeetings;
     }
 
+    /**
+     * Keeps a ContactManager loaded by a test, to close it after the test.
+     */
+    private <T extends ContactManagerImpl> T closeAfter(T manager) {
+        loadedManagers.add(manager);
+        return manager;
+    }
+
+    /**
+     * Adds a second future meeting for the future contact, a day after the first one.
+     */
+    private void addSecondFutureMeeting() {
+        Calendar date = (Calendar) DATE_FUTURE.clone();
+        date.add(Calendar.DAY_OF_MONTH, 1);
+        contactManager.addFutureMeeting(futureContactList, date);
+    }
+
     /**
      * Initialise all meetings with the default values.
      */
@@ -1567,6 +2354,11 @@ public class TestContactManager {
             }
         }
 
+        // Start without any changes logged or files kept by a previous test.
+        new File(TEST_LOG_FILE).delete();
+        new File(TEST_LOG_FILE + ".old").delete();
+        new File(TEST_BACKUP_FILE).delete();
+
         // Load all data from original file and write into the copy file.
         BufferedReader in = null;
         FileWriter fileWriter = null;
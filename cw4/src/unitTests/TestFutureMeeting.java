@@ -6,6 +6,7 @@ import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TimeZone;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +15,7 @@ import contactManager.Contact;
 import contactManager.ContactImpl;
 import contactManager.FutureMeeting;
 import contactManager.FutureMeetingImpl;
+import contactManager.MeetingComparator;
 
 /**
  * Unit test for the FutureMeeting class implementation.
@@ -96,4 +98,61 @@ public class TestFutureMeeting {
         Calendar dateFound = futureMeeting.getDate();
         assertEquals(DATE,dateFound);
     }
+
+    /**
+     * Testing getTimeInMillis, and that the meeting date cannot be changed through getDate.
+     */
+    @Test
+    public void testGetTimeInMillis() {
+        assertEquals(DATE.getTimeInMillis(), futureMeeting.getTimeInMillis());
+
+        futureMeeting.getDate().add(Calendar.YEAR, 1);
+        assertEquals(DATE.getTimeInMillis(), futureMeeting.getTimeInMillis());
+        assertEquals(DATE, futureMeeting.getDate());
+    }
+
+    /**
+     * Testing getDurationInMillis, 0 unless given.
+     */
+    @Test
+    public void testGetDuration() {
+        assertEquals(0, futureMeeting.getDurationInMillis());
+        assertEquals(3600000, new FutureMeetingImpl(ID, DATE, 3600000, contactList).getDurationInMillis());
+    }
+
+    /**
+     * Testing that a negative duration is rejected.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeDuration() {
+        new FutureMeetingImpl(ID, DATE, -1, contactList);
+    }
+
+    /**
+     * Testing that the time zone of the date given is kept.
+     */
+    @Test
+    public void testTimeZoneKept() {
+        Calendar date = new GregorianCalendar(TimeZone.getTimeZone("Asia/Tokyo"));
+        date.set(2030, 0, 1, 9, 0, 0);
+        FutureMeeting meeting = new FutureMeetingImpl(ID, date, contactList);
+
+        assertEquals("Asia/Tokyo", meeting.getDate().getTimeZone().getID());
+        assertEquals(9, meeting.getDate().get(Calendar.HOUR_OF_DAY));
+    }
+
+    /**
+     * Testing that meetings built from milliseconds compare by date.
+     */
+    @Test
+    public void testCompareByTime() {
+        FutureMeeting earlier = new FutureMeetingImpl(1, 1000L, contactList);
+        FutureMeeting later   = new FutureMeetingImpl(2, 2000L, contactList);
+        MeetingComparator comparator = new MeetingComparator();
+
+        assertEquals(-1, comparator.compare(earlier, later));
+        assertEquals(1, comparator.compare(later, earlier));
+        assertEquals(0, comparator.compare(earlier, earlier));
+        assertEquals(1000L, earlier.getDate().getTimeInMillis());
+    }
 }
@@ -0,0 +1,110 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.IntHashMap;
+
+/**
+ * Unit test to test the IntHashMap class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestIntHashMap {
+    /**
+     * Number of keys used on the bulk tests, enough to force several resizes.
+     */
+    private final int MANY = 10000;
+
+    /**
+     * The map to test.
+     */
+    private IntHashMap<String> map;
+
+    /**
+     * Initialise the map for each test.
+     */
+    @Before
+    public void before() {
+        map = new IntHashMap<String>();
+    }
+
+    /**
+     * Test that a mapped value is returned.
+     */
+    @Test
+    public void testPutGet() {
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.get(1));
+        assertTrue(map.containsKey(1));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * Test that an unknown key returns null.
+     */
+    @Test
+    public void testGetUnknown() {
+        map.put(1, "one");
+        assertNull(map.get(2));
+        assertFalse(map.containsKey(2));
+    }
+
+    /**
+     * Test that putting the same key replaces the value.
+     */
+    @Test
+    public void testPutReplace() {
+        map.put(1, "one");
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * Test exception on a null value.
+     */
+    @Test(expected=NullPointerException.class)
+    public void testPutNull() {
+        map.put(1, null);
+    }
+
+    /**
+     * Test that all keys survive the table growing, and that removing
+     * half of them keeps the other half reachable.
+     */
+    @Test
+    public void testManyKeys() {
+        for( int i = 0; i < MANY; i++ ) map.put(i, "v" + i);
+        assertEquals(MANY, map.size());
+
+        for( int i = 0; i < MANY; i += 2 ) assertEquals("v" + i, map.remove(i));
+        assertEquals(MANY / 2, map.size());
+
+        for( int i = 0; i < MANY; i++ ) {
+            if ( i % 2 == 0 ) assertNull(map.get(i));
+            else assertEquals("v" + i, map.get(i));
+        }
+    }
+
+    /**
+     * Test that values() returns each mapped value once.
+     */
+    @Test
+    public void testValues() {
+        for( int i = 1; i <= 100; i++ ) map.put(i, "v" + i);
+        Set<String> found = new HashSet<String>(map.values());
+        assertEquals(100, map.values().size());
+        assertEquals(100, found.size());
+        assertTrue(found.contains("v42"));
+    }
+}
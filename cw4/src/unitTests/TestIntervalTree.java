@@ -0,0 +1,136 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import contactManager.IntervalTree;
+import contactManager.MeetingKey;
+
+/**
+ * Unit test to test the IntervalTree class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestIntervalTree {
+    /**
+     * Test that intervals touching but not overlapping are not found.
+     */
+    @Test
+    public void testOverlapping() {
+        IntervalTree tree = IntervalTree.empty()
+                .put(new MeetingKey(100, 1), 200)
+                .put(new MeetingKey(200, 2), 300)
+                .put(new MeetingKey(150, 3), 160);
+
+        assertEquals(Arrays.asList(new MeetingKey(100, 1), new MeetingKey(150, 3)), tree.overlapping(120, 200));
+        assertEquals(Arrays.asList(new MeetingKey(200, 2)), tree.overlapping(200, 210));
+        assertTrue(tree.overlapping(300, 400).isEmpty());
+        assertTrue(tree.overlapping(0, 100).isEmpty());
+    }
+
+    /**
+     * Test that intervals without a duration take up the millisecond they start at.
+     */
+    @Test
+    public void testNoDuration() {
+        IntervalTree tree = IntervalTree.empty().put(new MeetingKey(100, 1), 100);
+
+        assertEquals(1, tree.overlapping(100, 100).size());
+        assertEquals(1, tree.overlapping(50, 101).size());
+        assertTrue(tree.overlapping(50, 100).isEmpty());
+        assertTrue(tree.overlapping(101, 101).isEmpty());
+    }
+
+    /**
+     * Test that changing a set leaves the sets it was made from unchanged.
+     */
+    @Test
+    public void testOlderSetsUnchanged() {
+        IntervalTree one = IntervalTree.empty().put(new MeetingKey(100, 1), 200);
+        IntervalTree two = one.put(new MeetingKey(300, 2), 400);
+        IntervalTree less = two.remove(new MeetingKey(100, 1));
+
+        assertEquals(1, one.size());
+        assertEquals(Arrays.asList(new MeetingKey(100, 1), new MeetingKey(300, 2)), two.keys());
+        assertEquals(Arrays.asList(new MeetingKey(300, 2)), less.keys());
+        assertTrue(less.overlapping(100, 200).isEmpty());
+        assertEquals(1, two.overlapping(100, 200).size());
+    }
+
+    /**
+     * Test that a cursor moves over the intervals ending after its time, in key order.
+     */
+    @Test
+    public void testCursor() {
+        Random random = new Random(7);
+        IntervalTree tree = IntervalTree.empty();
+        List<long[]> intervals = new ArrayList<long[]>();
+        for( int id = 0; id < 500; id++ ) {
+            long start = random.nextInt(100000);
+            long end = start + 1 + random.nextInt(5000);
+            tree = tree.put(new MeetingKey(start, id), end);
+            intervals.add(new long[] { start, id, end });
+        }
+
+        for( long from : new long[] { -1, 0, 25000, 50000, 99999, 200000 } ) {
+            List<MeetingKey> expected = new ArrayList<MeetingKey>();
+            for( long[] interval : intervals ) {
+                if ( interval[2] > from ) expected.add(new MeetingKey(interval[0], (int) interval[1]));
+            }
+            expected.sort(null);
+
+            List<MeetingKey> found = new ArrayList<MeetingKey>();
+            IntervalTree.Cursor cursor = tree.cursor(from);
+            while( cursor.next() ) {
+                assertTrue(cursor.getEnd() > from);
+                found.add(cursor.getKey());
+            }
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Test random puts, removes and overlap searches against a search of all intervals.
+     */
+    @Test
+    public void testAgainstAllIntervals() {
+        Random random = new Random(42);
+        long[] starts = new long[1000];
+        long[] ends = new long[starts.length];
+        boolean[] present = new boolean[starts.length];
+        IntervalTree tree = IntervalTree.empty();
+
+        for( int i = 0; i < 5000; i++ ) {
+            int id = random.nextInt(starts.length);
+            if ( present[id] ) {
+                tree = tree.remove(new MeetingKey(starts[id], id));
+                present[id] = false;
+            } else {
+                starts[id] = random.nextInt(100000);
+                ends[id] = starts[id] + (random.nextInt(10) == 0 ? 0 : random.nextInt(3000));
+                tree = tree.put(new MeetingKey(starts[id], id), ends[id]);
+                present[id] = true;
+            }
+
+            // Check a random search against every interval.
+            long start = random.nextInt(100000);
+            long end = start + random.nextInt(2000);
+            List<MeetingKey> expected = new ArrayList<MeetingKey>();
+            for( int other = 0; other < starts.length; other++ ) {
+                if ( !present[other] ) continue;
+                long otherEnd = Math.max(ends[other], starts[other] + 1);
+                if ( starts[other] < Math.max(end, start + 1) && start < otherEnd ) expected.add(new MeetingKey(starts[other], other));
+            }
+            expected.sort(null);
+            assertEquals(expected, tree.overlapping(start, end));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package unitTests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Calendar;
@@ -398,6 +400,50 @@ public class TestJSONUtils {
         jUtils.toFutureMeeting(jMeeting);
     }
 
+    /**
+     * Test that with a contact resolver, known meeting contacts are saved
+     * by id only and loaded back as the known Contact objects.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testMeetingContactIds() {
+        JSONUtils resolving = new JSONUtilsImpl(id -> id == CONTACT_ID ? contact : null);
+
+        JSONArray jA = new JSONArray();
+        jA.add(CONTACT_ID);
+        JSONObject foundJO = resolving.toJSONObject(meeting);
+        assertEquals(jA, foundJO.get("contacts"));
+
+        Meeting meetingFound = resolving.toMeeting(foundJO);
+        assertSame(contact, meetingFound.getContacts().iterator().next());
+    }
+
+    /**
+     * Test that with a contact resolver, meeting contacts saved in full
+     * are loaded as the known Contact objects.
+     */
+    @Test
+    public void testMeetingFullContactsResolved() {
+        JSONUtils resolving = new JSONUtilsImpl(id -> id == CONTACT_ID ? contact : null);
+
+        Meeting meetingFound = resolving.toMeeting(jMeeting);
+        assertSame(contact, meetingFound.getContacts().iterator().next());
+    }
+
+    /**
+     * Test that a meeting duration is saved only when given, and loaded back.
+     */
+    @Test
+    public void testMeetingDuration() {
+        FutureMeeting longMeeting = new FutureMeetingImpl(MEETING_ID_FUTURE, date, 1800000, contacts);
+        JSONObject foundJO = jUtils.toJSONObject(longMeeting);
+        assertEquals(1800000L, foundJO.get("duration"));
+        assertEquals(1800000, jUtils.toFutureMeeting(foundJO).getDurationInMillis());
+
+        assertNull(jFutureMeeting.get("duration"));
+        assertEquals(0, jUtils.toFutureMeeting(jFutureMeeting).getDurationInMillis());
+    }
+
     /**
      * Asserting that the information is the same, regardless of the object address.
      * 
@@ -0,0 +1,174 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.Contact;
+import contactManager.ContactImpl;
+import contactManager.ContactManager;
+import contactManager.ContactManagerImpl;
+import contactManager.DataFileFormat;
+import contactManager.MappedContactManager;
+import contactManager.Meeting;
+import contactManager.PastMeeting;
+
+/**
+ * Unit test to test the MappedContactManager class against the
+ * ContactManagerImpl that saved its data file.
+ *
+ * @author Vasco
+ *
+ */
+public class TestMappedContactManager {
+    /**
+     * The data file used by the tests.
+     */
+    private final String DATA_FILE = "src" + File.separatorChar + "unitTests" + File.separatorChar + "test_mapped.bin";
+
+    /**
+     * The contactManager that saved the data file.
+     */
+    private ContactManagerImpl saved;
+
+    /**
+     * The contactManager to test.
+     */
+    private ContactManager mapped;
+
+    /**
+     * A contact in both past and future meetings.
+     */
+    private Contact alice;
+
+    /**
+     * Save a few contacts and meetings in the binary format, and map them.
+     *
+     * @throws IOException on failure to map the data file
+     */
+    @Before
+    public void before() throws IOException {
+        deleteFiles();
+        saved = new ContactManagerImpl(DATA_FILE, DataFileFormat.BINARY);
+        saved.addNewContact("Alice Smith", "First");
+        saved.addNewContact("Bob Smith", "Second");
+        saved.addNewContact("Carol Jones", "Third");
+        alice = saved.getContacts("Alice").iterator().next();
+        Contact bob = saved.getContacts("Bob").iterator().next();
+
+        Set<Contact> both = new HashSet<Contact>();
+        both.add(alice);
+        both.add(bob);
+        saved.addNewPastMeeting(both, new GregorianCalendar(2014, 0, 2, 10, 0), "Past notes");
+        saved.addNewPastMeeting(Collections.singleton(alice), new GregorianCalendar(2013, 5, 1), "Earlier");
+
+        Calendar future = Calendar.getInstance();
+        future.add(Calendar.YEAR, 1);
+        saved.addFutureMeeting(both, future);
+        saved.flush();
+
+        mapped = new MappedContactManager(DATA_FILE);
+    }
+
+    /**
+     * Remove the data file and its companions after each test.
+     */
+    @After
+    public void after() {
+        saved.close();
+        deleteFiles();
+    }
+
+    /**
+     * Test that contacts are found by id and by name.
+     */
+    @Test
+    public void testGetContacts() {
+        Contact found = mapped.getContacts(alice.getId()).iterator().next();
+        assertEquals(alice.getName(), found.getName());
+        assertEquals(alice.getNotes(), found.getNotes());
+
+        assertEquals(2, mapped.getContacts("Smith").size());
+        assertEquals(3, mapped.getContacts("").size());
+    }
+
+    /**
+     * Test that meetings are found by id, and that contact meeting lists match.
+     */
+    @Test
+    public void testMeetings() {
+        for( int id = 1; id <= 3; id++ ) {
+            Meeting expected = saved.getMeeting(id);
+            Meeting found    = mapped.getMeeting(id);
+            assertEquals(expected.getDate().getTimeInMillis(), found.getDate().getTimeInMillis());
+            assertEquals(expected.getContacts().size(), found.getContacts().size());
+        }
+        assertNull(mapped.getMeeting(4));
+        assertEquals("Past notes", mapped.getPastMeeting(1).getNotes());
+
+        List<PastMeeting> past = mapped.getPastMeetingList(alice);
+        assertEquals(2, past.size());
+        assertEquals("Earlier", past.get(0).getNotes());
+        assertEquals(1, mapped.getFutureMeetingList(alice).size());
+        assertEquals(1, mapped.getFutureMeetingList(Calendar.getInstance()).size());
+        assertEquals(3, mapped.getFutureMeetingList(new GregorianCalendar(2000, 0, 1)).size());
+    }
+
+    /**
+     * Test that past meetings are told by the given clock.
+     *
+     * @throws IOException on failure to map the data file
+     */
+    @Test
+    public void testClock() throws IOException {
+        Calendar before = new GregorianCalendar(2014, 0, 1);
+        MappedContactManager early = new MappedContactManager(DATA_FILE, Clock.fixed(before.toInstant(), ZoneId.systemDefault()));
+        assertEquals(saved.getMeeting(1).getDate().getTimeInMillis(), early.getFutureMeeting(1).getDate().getTimeInMillis());
+        try {
+            early.getPastMeeting(1);
+            fail("A meeting after the clock is not past.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Test that an unknown contact is rejected as by ContactManagerImpl.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnknownContactMeetings() {
+        mapped.getPastMeetingList(new ContactImpl(99, "Nobody", ""));
+    }
+
+    /**
+     * Test that changes are rejected.
+     */
+    @Test(expected=UnsupportedOperationException.class)
+    public void testReadOnly() {
+        mapped.addNewContact("Dave", "");
+    }
+
+    /**
+     * Deletes the data file and the files kept next to it.
+     */
+    private void deleteFiles() {
+        new File(DATA_FILE).delete();
+        new File(DATA_FILE + ".log").delete();
+        new File(DATA_FILE + ".bak").delete();
+    }
+}
@@ -0,0 +1,252 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.json.simple.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.MutationLog;
+
+/**
+ * Unit test to test the MutationLog class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestMutationLog {
+    /**
+     * The log file used by the tests.
+     */
+    private final String LOG_FILE = "src" + File.separatorChar + "unitTests" + File.separatorChar + "test_mutation.log";
+
+    /**
+     * The rotated log file used by the tests.
+     */
+    private final String ROTATED_FILE = LOG_FILE + ".old";
+
+    /**
+     * The record key used by the tests.
+     */
+    private final String KEY = "contact";
+
+    /**
+     * The log to test.
+     */
+    private MutationLog log;
+
+    /**
+     * The records replayed from the log.
+     */
+    private List<JSONObject> replayed;
+
+    /**
+     * Start each test with an empty log.
+     *
+     * @throws IOException on failure to open the log
+     */
+    @Before
+    public void before() throws IOException {
+        new File(LOG_FILE).delete();
+        new File(ROTATED_FILE).delete();
+        log = new MutationLog(LOG_FILE);
+        replayed = new LinkedList<JSONObject>();
+    }
+
+    /**
+     * Close and remove the log after each test.
+     *
+     * @throws IOException on failure to close the log
+     */
+    @After
+    public void after() throws IOException {
+        log.close();
+        new File(LOG_FILE).delete();
+        new File(ROTATED_FILE).delete();
+    }
+
+    /**
+     * Test that appended records are replayed in order.
+     *
+     * @throws IOException on log failure
+     */
+    @Test
+    public void testAppendReplay() throws IOException {
+        log.append(KEY, record(1));
+        log.append(KEY, record(2));
+
+        replay();
+        assertEquals(2, replayed.size());
+        assertEquals("1", replayed.get(0).get("id").toString());
+        assertEquals("2", replayed.get(1).get("id").toString());
+    }
+
+    /**
+     * Test that truncating removes all records.
+     *
+     * @throws IOException on log failure
+     */
+    @Test
+    public void testTruncate() throws IOException {
+        log.append(KEY, record(1));
+        log.truncate();
+        assertEquals(0, log.size());
+
+        replay();
+        assertEquals(0, replayed.size());
+    }
+
+    /**
+     * Test that rotating moves the records to the rotated log, and that
+     * records appended afterwards go to the log only.
+     *
+     * @throws IOException on log failure
+     */
+    @Test
+    public void testRotate() throws IOException {
+        log.append(KEY, record(1));
+        log.rotate(ROTATED_FILE);
+        assertEquals(0, log.size());
+        log.append(KEY, record(2));
+
+        replay(ROTATED_FILE);
+        assertEquals(1, replayed.size());
+        assertEquals("1", replayed.get(0).get("id").toString());
+
+        replayed.clear();
+        replay();
+        assertEquals(1, replayed.size());
+        assertEquals("2", replayed.get(0).get("id").toString());
+    }
+
+    /**
+     * Test that rotating onto a rotated log left behind keeps its records first.
+     *
+     * @throws IOException on log failure
+     */
+    @Test
+    public void testRotateOntoExisting() throws IOException {
+        log.append(KEY, record(1));
+        log.rotate(ROTATED_FILE);
+        log.append(KEY, record(2));
+        log.rotate(ROTATED_FILE);
+
+        replay(ROTATED_FILE);
+        assertEquals(2, replayed.size());
+        assertEquals("1", replayed.get(0).get("id").toString());
+        assertEquals("2", replayed.get(1).get("id").toString());
+        assertEquals(0, log.size());
+    }
+
+    /**
+     * Test that records appended durably from several threads at once are
+     * all on disk once their futures complete, each once.
+     *
+     * @throws Exception on log failure, or a record failing to be written
+     */
+    @Test
+    public void testAppendDurably() throws Exception {
+        final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for( int t = 0; t < 4; t++ ) {
+            final int first = t * 50;
+            Thread thread = new Thread() {
+                public void run() {
+                    for( int id = first; id < first + 50; id++ ) {
+                        CompletableFuture<Void> future = log.appendDurably(KEY, record(id));
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for( Thread thread : threads ) thread.join();
+        for( CompletableFuture<Void> future : futures ) future.get();
+
+        replay();
+        assertEquals(200, replayed.size());
+        Set<String> ids = new HashSet<String>();
+        for( JSONObject record : replayed ) ids.add(record.get("id").toString());
+        assertEquals(200, ids.size());
+    }
+
+    /**
+     * Test that records queued before closing are written, and that a
+     * record appended durably once the log is closed fails.
+     *
+     * @throws Exception the failure to append to the closed log
+     */
+    @Test(expected=ExecutionException.class)
+    public void testAppendDurablyClosed() throws Exception {
+        log.appendDurably(KEY, record(1));
+        log.close();
+        replay();
+        assertEquals(1, replayed.size());
+
+        log.appendDurably(KEY, record(2)).get();
+    }
+
+    /**
+     * Test that a line cut short by a crash is skipped, and that
+     * records appended after reopening the log are still replayed.
+     *
+     * @throws IOException on log failure
+     */
+    @Test
+    public void testTornLine() throws IOException {
+        log.append(KEY, record(1));
+        log.close();
+
+        // Simulate a crash half way through writing a line.
+        FileWriter fw = new FileWriter(LOG_FILE, true);
+        fw.write("{\"" + KEY + "\":[{\"id\":");
+        fw.close();
+
+        log = new MutationLog(LOG_FILE);
+        log.append(KEY, record(3));
+
+        replay();
+        assertEquals(2, replayed.size());
+        assertEquals("1", replayed.get(0).get("id").toString());
+        assertEquals("3", replayed.get(1).get("id").toString());
+    }
+
+    /**
+     * Replays the log into the replayed list.
+     */
+    private void replay() throws IOException {
+        replay(LOG_FILE);
+    }
+
+    /**
+     * Replays the given log file into the replayed list.
+     */
+    private void replay(String fileName) throws IOException {
+        MutationLog.replay(fileName, (key, record) -> replayed.add(record));
+    }
+
+    /**
+     * Returns a record with the given id.
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject record(int id) {
+        JSONObject jo = new JSONObject();
+        jo.put("id", id);
+        return jo;
+    }
+}
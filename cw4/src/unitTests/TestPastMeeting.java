@@ -117,4 +117,16 @@ public class TestPastMeeting {
         assertEquals(NOTES, foundNotes);
     }
     
+
+    /**
+     * Testing getTimeInMillis, and that the meeting date cannot be changed through getDate.
+     */
+    @Test
+    public void testGetTimeInMillis() {
+        assertEquals(DATE.getTimeInMillis(), pastMeeting.getTimeInMillis());
+
+        pastMeeting.getDate().add(Calendar.YEAR, 1);
+        assertEquals(DATE.getTimeInMillis(), pastMeeting.getTimeInMillis());
+        assertEquals(DATE, pastMeeting.getDate());
+    }
 }
@@ -0,0 +1,98 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import contactManager.PersistentTreeMap;
+
+/**
+ * Unit test to test the PersistentTreeMap class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestPersistentTreeMap {
+    /**
+     * Test that values are found by key and listed in key order.
+     */
+    @Test
+    public void testPutGet() {
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.empty();
+        for( int key : Arrays.asList(5, 3, 8, 1, 4) ) map = map.put(key, "v" + key);
+
+        assertEquals(5, map.size());
+        assertEquals("v4", map.get(4));
+        assertNull(map.get(2));
+        assertEquals(Arrays.asList("v1", "v3", "v4", "v5", "v8"), map.values());
+        assertEquals(Arrays.asList("v4", "v5", "v8"), map.tailValues(4, true));
+        assertEquals(Arrays.asList("v5", "v8"), map.tailValues(4, false));
+        assertEquals(Arrays.asList("v3", "v4", "v5", "v8"), map.tailValues(2, false));
+    }
+
+    /**
+     * Test that changing a map leaves the maps it was made from unchanged.
+     */
+    @Test
+    public void testOlderMapsUnchanged() {
+        PersistentTreeMap<Integer, String> empty = PersistentTreeMap.empty();
+        PersistentTreeMap<Integer, String> one   = empty.put(1, "one");
+        PersistentTreeMap<Integer, String> two   = one.put(2, "two");
+        PersistentTreeMap<Integer, String> other = two.put(1, "other");
+        PersistentTreeMap<Integer, String> less  = other.remove(2);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(Collections.singletonList("one"), one.values());
+        assertEquals(Arrays.asList("one", "two"), two.values());
+        assertEquals(Arrays.asList("other", "two"), other.values());
+        assertEquals(Collections.singletonList("other"), less.values());
+    }
+
+    /**
+     * Test that changes making no difference return the same map.
+     */
+    @Test
+    public void testNoChange() {
+        String value = "one";
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.<Integer, String>empty().put(1, value);
+        assertSame(map, map.put(1, value));
+        assertSame(map, map.remove(2));
+    }
+
+    /**
+     * Test random puts and removes against a TreeMap, over enough keys
+     * for the tree to be rebalanced many times.
+     */
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(42);
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        PersistentTreeMap<Integer, Integer> map = PersistentTreeMap.empty();
+        for( int i = 0; i < 20000; i++ ) {
+            int key = random.nextInt(2000);
+            if ( random.nextInt(3) == 0 ) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<Integer>(expected.values()), map.values());
+        List<Integer> tail = new ArrayList<Integer>(expected.tailMap(1000, false).values());
+        assertEquals(tail, map.tailValues(1000, false));
+        for( int key = 0; key < 2000; key++ ) assertEquals(expected.get(key), map.get(key));
+    }
+}
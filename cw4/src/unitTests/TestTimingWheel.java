@@ -0,0 +1,132 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import contactManager.TimingWheel;
+
+/**
+ * Unit test to test the TimingWheel class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestTimingWheel {
+    /**
+     * Test that ids come due once time is past theirs, not at the end of their tick.
+     */
+    @Test
+    public void testDueExactly() {
+        TimingWheel wheel = new TimingWheel(100, 8, 0);
+        wheel.schedule(1, 150);
+        wheel.schedule(2, 120);
+        wheel.schedule(3, 250);
+
+        List<Integer> due = new ArrayList<Integer>();
+        wheel.advance(120, due::add);
+        assertTrue(due.isEmpty());
+        assertEquals(121, wheel.nextCheck());
+
+        wheel.advance(121, due::add);
+        assertEquals(Collections.singletonList(2), due);
+        assertEquals(151, wheel.nextCheck());
+
+        wheel.advance(251, due::add);
+        assertEquals(Arrays.asList(2, 1, 3), due);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Test that hasDue tells whether advance has anything to give, changing nothing.
+     */
+    @Test
+    public void testHasDue() {
+        TimingWheel wheel = new TimingWheel(100, 8, 0);
+        wheel.schedule(1, 150);
+        wheel.schedule(2, 1050);
+
+        assertFalse(wheel.hasDue(150));
+        assertTrue(wheel.hasDue(151));
+        assertTrue(wheel.hasDue(151));
+        assertEquals(2, wheel.size());
+
+        List<Integer> due = new ArrayList<Integer>();
+        wheel.advance(200, due::add);
+        assertEquals(Collections.singletonList(1), due);
+        assertFalse(wheel.hasDue(1050));
+        assertTrue(wheel.hasDue(1051));
+    }
+
+    /**
+     * Test that ids scheduled for a time gone by come due on the next advance.
+     */
+    @Test
+    public void testPastTime() {
+        TimingWheel wheel = new TimingWheel(100, 8, 1000);
+        wheel.schedule(1, 10);
+        assertEquals(11, wheel.nextCheck());
+
+        List<Integer> due = new ArrayList<Integer>();
+        wheel.advance(5, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(1000, due::add);
+        assertEquals(Collections.singletonList(1), due);
+    }
+
+    /**
+     * Test that ids many turns of the wheel ahead only come due in their own turn.
+     */
+    @Test
+    public void testManyTurns() {
+        TimingWheel wheel = new TimingWheel(10, 4, 0);
+        wheel.schedule(1, 1005);
+
+        List<Integer> due = new ArrayList<Integer>();
+        for( long now = 0; now <= 1005; now += 5 ) wheel.advance(now, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(1006, due::add);
+        assertEquals(Collections.singletonList(1), due);
+    }
+
+    /**
+     * Test random schedules and advances, some jumping many turns at once,
+     * against the ids whose time is past.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(16, 32, 0);
+        long[] times = new long[2000];
+        boolean[] expected = new boolean[times.length];
+        boolean[] found = new boolean[times.length];
+
+        long now = 0;
+        for( int id = 0; id < times.length; id++ ) {
+            times[id] = now + random.nextInt(5000) - 100;
+            wheel.schedule(id, times[id]);
+            if ( random.nextInt(10) == 0 ) {
+                now += random.nextInt(random.nextBoolean() ? 50 : 2000);
+                wheel.advance(now, due -> found[due] = true);
+                for( int i = 0; i <= id; i++ ) expected[i] = times[i] < now;
+                assertTrue(Arrays.equals(expected, found));
+            }
+        }
+    }
+
+    /**
+     * Test that the number of buckets must be a power of two.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadBuckets() {
+        new TimingWheel(10, 12, 0);
+    }
+}
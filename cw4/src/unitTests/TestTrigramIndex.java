@@ -0,0 +1,95 @@
+package unitTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import contactManager.Contact;
+import contactManager.ContactImpl;
+import contactManager.TrigramIndex;
+
+/**
+ * Unit test to test the TrigramIndex class.
+ *
+ * @author Vasco
+ *
+ */
+public class TestTrigramIndex {
+    /**
+     * The index to test.
+     */
+    private TrigramIndex index;
+
+    /**
+     * A contact whose name holds every trigram of "abcd", but not "abcd" itself.
+     */
+    private Contact splitContact = new ContactImpl(1, "abc bcd", "");
+
+    /**
+     * A contact whose name holds "abcd".
+     */
+    private Contact wholeContact = new ContactImpl(2, "xabcdx", "");
+
+    /**
+     * A contact with a short name.
+     */
+    private Contact shortContact = new ContactImpl(3, "ab", "");
+
+    /**
+     * Initialise the index for each test.
+     */
+    @Before
+    public void before() {
+        index = new TrigramIndex();
+        index.add(splitContact);
+        index.add(wholeContact);
+        index.add(shortContact);
+    }
+
+    /**
+     * Test that only names containing the whole string are returned.
+     */
+    @Test
+    public void testSearchExactContains() {
+        Set<Contact> found = index.search("abcd");
+        assertEquals(1, found.size());
+        assertTrue(found.contains(wholeContact));
+    }
+
+    /**
+     * Test that strings shorter than a trigram still match every name containing them.
+     */
+    @Test
+    public void testSearchShort() {
+        Set<Contact> found = index.search("ab");
+        assertEquals(3, found.size());
+    }
+
+    /**
+     * Test that the empty string matches every contact.
+     */
+    @Test
+    public void testSearchEmpty() {
+        assertEquals(3, index.search("").size());
+    }
+
+    /**
+     * Test that an unknown trigram returns an empty set.
+     */
+    @Test
+    public void testSearchNotFound() {
+        assertTrue(index.search("zzz").isEmpty());
+    }
+
+    /**
+     * Test exception on a null name.
+     */
+    @Test(expected=NullPointerException.class)
+    public void testSearchNull() {
+        index.search(null);
+    }
+}